@@ -0,0 +1,82 @@
+package com.online.lyrics.component;
+
+import com.online.lyrics.model.dto.SongRequest;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatasetGeneratorBenchmark {
+
+    private static final String[] WORDS = {"love", "night", "baby", "heart", "dance", "rain", "fire", "dream",
+            "gonna", "tonight", "forever", "alone", "light", "home", "road", "sky", "tears", "money", "time"};
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    private final DatasetGeneratorComponent datasetGeneratorComponent = new DatasetGeneratorComponent();
+    private Path csvFile;
+    private String[] lines;
+
+    @Setup(Level.Trial)
+    public void writeCsv() throws IOException {
+        Random random = new Random(42);
+        csvFile = Files.createTempFile("songs-benchmark", ".csv");
+        lines = new String[1024];
+
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFile)) {
+            writer.write("id,Artist,Title,Album,Year,Date,Lyric");
+            writer.newLine();
+            for (int i = 0; i < rows; i++) {
+                String line = i + ",Artist " + (i % 500) + ",\"Title, part " + i + "\",Album " + (i % 900)
+                        + "," + (1960 + i % 60) + ",2017-09-15," + lyrics(random, 200 + random.nextInt(300));
+                if (i < lines.length) {
+                    lines[i] = line;
+                }
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCsv() throws IOException {
+        Files.deleteIfExists(csvFile);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public void parseCsvLine(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(datasetGeneratorComponent.parseCsvLine(line));
+        }
+    }
+
+    @Benchmark
+    public List<SongRequest> generateSongRequestFromCSV() throws IOException {
+        return datasetGeneratorComponent.generateSongRequestFromCSV(csvFile.toString());
+    }
+
+    private static String lyrics(Random random, int words) {
+        StringBuilder lyrics = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                lyrics.append(' ');
+            }
+            lyrics.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return lyrics.toString();
+    }
+}
@@ -0,0 +1,86 @@
+package com.online.lyrics.component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.document.Document;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RerankComponentBenchmark {
+
+    @Param({"10", "50"})
+    public int documents;
+
+    private RerankComponent rerankComponent;
+    private List<Document> candidates;
+    private ChatResponse response;
+    private List<Map<String, Object>> ranking;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RerankCacheComponent rerankCacheComponent = new RerankCacheComponent(new SimpleMeterRegistry(),
+                false, 0, Duration.ZERO);
+        // The chat model is never called by the benchmarked methods
+        rerankComponent = new RerankComponent(null, new ObjectMapper(), rerankCacheComponent,
+                new SimpleMeterRegistry());
+
+        candidates = new ArrayList<>(documents);
+        StringBuilder json = new StringBuilder("```json\n[");
+        for (int i = 0; i < documents; i++) {
+            candidates.add(document(i));
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"i\":").append(documents - i)
+                    .append(",\"s\":").append(String.format(Locale.ROOT, "%.2f", 1.0 - i / (double) documents));
+            if (i < 10) {
+                json.append(",\"m\":\"Upbeat tempo and hopeful lyrics\"");
+            }
+            json.append('}');
+        }
+        json.append("]\n```");
+
+        response = new ChatResponse(List.of(new Generation(new AssistantMessage(json.toString()))));
+        ranking = rerankComponent.parseRerankingResponse(response);
+    }
+
+    @Benchmark
+    public String buildRerankingPrompt() {
+        return rerankComponent.buildRerankingPrompt("happy summer road trip", candidates);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> parseRerankingResponse() {
+        return rerankComponent.parseRerankingResponse(response);
+    }
+
+    @Benchmark
+    public List<Document> applyRerankingResults() {
+        return rerankComponent.applyRerankingResults(candidates, ranking);
+    }
+
+    private static Document document(int i) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("songId", "song-" + i);
+        metadata.put("title", "Title " + i);
+        metadata.put("artist", "Artist " + (i % 7));
+        metadata.put("genre", i % 2 == 0 ? "Pop" : "Rock");
+        return Document.builder().id("song-" + i).text("Lyrics " + i).metadata(metadata).build();
+    }
+}
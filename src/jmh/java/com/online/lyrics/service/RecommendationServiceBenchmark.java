@@ -0,0 +1,76 @@
+package com.online.lyrics.service;
+
+import com.online.lyrics.component.SongSummaryComponent;
+import com.online.lyrics.model.Song;
+import com.online.lyrics.model.dto.SongRecommendationResponse;
+import com.online.lyrics.repository.SongRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.document.Document;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecommendationServiceBenchmark {
+
+    @Param({"10", "50"})
+    public int limit;
+
+    // 0 disables the song summary cache, so every call goes to the (stubbed) repository
+    @Param({"0", "50000"})
+    public long songCacheSize;
+
+    private RecommendationService recommendationService;
+    private List<Document> documents;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SongSummaryComponent songSummaryComponent = new SongSummaryComponent(stubSongRepository(),
+                new SimpleMeterRegistry(), songCacheSize, Duration.ofHours(1));
+        recommendationService = new RecommendationService(songSummaryComponent, null, null, null, new SimpleMeterRegistry());
+
+        documents = new ArrayList<>(limit * 2);
+        for (int i = 0; i < limit * 2; i++) {
+            documents.add(Document.builder()
+                    .id("song-" + i)
+                    .text("Lyrics " + i)
+                    .metadata(Map.of("songId", "song-" + i, "motivation", "Matches the requested mood " + i))
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public List<SongRecommendationResponse> mapDocumentsToRecommendations() {
+        return recommendationService.mapDocumentsToRecommendations(documents, limit);
+    }
+
+    private static SongRepository stubSongRepository() {
+        return (SongRepository) Proxy.newProxyInstance(SongRepository.class.getClassLoader(),
+                new Class<?>[]{SongRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findByIdIn")) {
+                        List<Song> songs = new ArrayList<>();
+                        for (Object id : (Collection<?>) args[0]) {
+                            Song song = new Song("Title " + id, "Artist " + id, "Description");
+                            song.setId(id.toString());
+                            song.setAlbum("Album");
+                            song.setGenre("Pop");
+                            song.setReleaseYear(2017);
+                            songs.add(song);
+                        }
+                        return songs;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
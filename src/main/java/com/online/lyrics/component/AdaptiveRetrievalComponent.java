@@ -0,0 +1,187 @@
+package com.online.lyrics.component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.online.lyrics.model.SongFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Chooses topK and similarity threshold of each vector search from the score distribution of earlier
+ * searches for the same mood, so that as few candidates as useful go on to the re-ranker.
+ * <p>
+ * The vector search runs once at {@code minSimilarityThreshold}; the adaptive threshold is applied to its
+ * hits afterwards. When fewer than {@code limit} hits clear it, the threshold is lowered step by step, down
+ * to {@code minSimilarityThreshold}, without searching again. Hits are cut at the first score cliff (a drop
+ * of at least {@code cliffGap} between neighbours) past the first {@code limit}. Per mood and filter, the
+ * number of hits kept relative to the limit and the threshold that was needed are learned as moving averages
+ * in a bounded cache; later searches start from them instead of the static defaults.
+ */
+@Slf4j
+@Component
+public class AdaptiveRetrievalComponent {
+
+    // The learned topK leaves room above the hits kept so far, so a mood with more good matches can grow
+    private static final double TOP_K_HEADROOM = 1.25;
+    private static final int DEFAULT_TOP_K_FACTOR = 2;
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final double minSimilarityThreshold;
+    private final double thresholdStep;
+    private final int maxWidenings;
+    private final double cliffGap;
+    private final int maxTopKFactor;
+    private final double learningRate;
+    private final Cache<RetrievalKey, LearnedDefaults> learned;
+
+    public AdaptiveRetrievalComponent(MeterRegistry meterRegistry,
+                                      @Value("${lyrics.retrieval.adaptive.enabled:true}") boolean enabled,
+                                      @Value("${lyrics.retrieval.similarity-threshold:0.6}") double similarityThreshold,
+                                      @Value("${lyrics.retrieval.adaptive.min-similarity-threshold:0.45}") double minSimilarityThreshold,
+                                      @Value("${lyrics.retrieval.adaptive.threshold-step:0.05}") double thresholdStep,
+                                      @Value("${lyrics.retrieval.adaptive.max-widenings:2}") int maxWidenings,
+                                      @Value("${lyrics.retrieval.adaptive.cliff-gap:0.05}") double cliffGap,
+                                      @Value("${lyrics.retrieval.adaptive.max-top-k-factor:4}") int maxTopKFactor,
+                                      @Value("${lyrics.retrieval.adaptive.learning-rate:0.2}") double learningRate,
+                                      @Value("${lyrics.retrieval.adaptive.maximum-moods:10000}") long maximumMoods) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.minSimilarityThreshold = Math.min(minSimilarityThreshold, similarityThreshold);
+        this.thresholdStep = thresholdStep;
+        this.maxWidenings = maxWidenings;
+        this.cliffGap = cliffGap;
+        this.maxTopKFactor = Math.max(maxTopKFactor, DEFAULT_TOP_K_FACTOR);
+        this.learningRate = learningRate;
+        this.learned = Caffeine.newBuilder()
+                .maximumSize(maximumMoods)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, learned, "lyrics.retrieval.learned");
+    }
+
+    /**
+     * Parameters of one vector search.
+     */
+    public record RetrievalPlan(int topK, double similarityThreshold) {
+    }
+
+    private record RetrievalKey(String normalizedMood, SongFilter filter) {
+    }
+
+    /**
+     * @param keptPerLimit        hits kept after the cliff cut, relative to the requested limit
+     * @param similarityThreshold threshold that returned enough hits
+     */
+    private record LearnedDefaults(double keptPerLimit, double similarityThreshold) {
+    }
+
+    /**
+     * Runs {@code search} once and returns its hits above an adaptively chosen threshold, lowered while
+     * too few hits clear it, cut at the first score cliff.
+     *
+     * @param search runs a vector search with the given plan; hits must be ordered by descending score
+     */
+    public List<Document> retrieve(String normalizedMood, SongFilter filter, int limit,
+                                   Function<RetrievalPlan, List<Document>> search) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        if (!enabled) {
+            return search.apply(new RetrievalPlan(limit * DEFAULT_TOP_K_FACTOR, similarityThreshold));
+        }
+
+        RetrievalKey key = new RetrievalKey(normalizedMood, filter);
+        RetrievalPlan plan = initialPlan(key, limit);
+        // Hits down to the lowest threshold the widening may reach, so widening needs no second search
+        List<Document> hits = search.apply(new RetrievalPlan(plan.topK(), minSimilarityThreshold));
+        List<Document> results = aboveThreshold(hits, plan.similarityThreshold());
+
+        boolean widened = false;
+        for (int widening = 0; widening < maxWidenings && tooFew(results, hits, plan, limit); widening++) {
+            plan = new RetrievalPlan(plan.topK(),
+                    Math.max(minSimilarityThreshold, plan.similarityThreshold() - thresholdStep));
+            log.debug("Only {} hits for mood: '{}', widening the search to threshold {}",
+                    results.size(), normalizedMood, plan.similarityThreshold());
+            meterRegistry.counter("lyrics.retrieval.widened").increment();
+            results = aboveThreshold(hits, plan.similarityThreshold());
+            widened = true;
+        }
+
+        List<Document> kept = cutAtCliff(results, limit);
+        meterRegistry.summary("lyrics.retrieval.cliff-cut").record(results.size() - kept.size());
+        learn(key, limit, plan, widened, kept);
+        return kept;
+    }
+
+    private RetrievalPlan initialPlan(RetrievalKey key, int limit) {
+        LearnedDefaults defaults = learned.getIfPresent(key);
+        if (defaults == null) {
+            return new RetrievalPlan(limit * DEFAULT_TOP_K_FACTOR, similarityThreshold);
+        }
+        int topK = (int) Math.ceil(limit * defaults.keptPerLimit() * TOP_K_HEADROOM);
+        return new RetrievalPlan(Math.clamp(topK, limit, limit * maxTopKFactor), defaults.similarityThreshold());
+    }
+
+    // Only hits the threshold left out can be won back by lowering it
+    private boolean tooFew(List<Document> results, List<Document> hits, RetrievalPlan plan, int limit) {
+        return results.size() < limit && results.size() < hits.size()
+                && plan.similarityThreshold() > minSimilarityThreshold;
+    }
+
+    // Hits are ordered by descending score, so the ones above the threshold are a prefix
+    private List<Document> aboveThreshold(List<Document> hits, double threshold) {
+        int above = 0;
+        while (above < hits.size() && (hits.get(above).getScore() == null || hits.get(above).getScore() >= threshold)) {
+            above++;
+        }
+        return above == hits.size() ? hits : List.copyOf(hits.subList(0, above));
+    }
+
+    /**
+     * Cuts the hits at the first drop of at least {@code cliffGap} between neighbouring scores, keeping at
+     * least {@code limit} hits.
+     */
+    private List<Document> cutAtCliff(List<Document> results, int limit) {
+        for (int i = limit; i < results.size(); i++) {
+            Double previous = results.get(i - 1).getScore();
+            Double current = results.get(i).getScore();
+            if (previous == null || current == null) {
+                return results;
+            }
+            if (previous - current >= cliffGap) {
+                return List.copyOf(results.subList(0, i));
+            }
+        }
+        return results;
+    }
+
+    private void learn(RetrievalKey key, int limit, RetrievalPlan plan, boolean widened, List<Document> kept) {
+        double threshold = plan.similarityThreshold();
+        if (!widened && kept.size() >= limit) {
+            // Enough hits clear a higher threshold: drift back towards the configured one
+            Double weakest = kept.get(kept.size() - 1).getScore();
+            if (weakest != null && weakest >= threshold + thresholdStep) {
+                threshold = Math.min(similarityThreshold, threshold + thresholdStep);
+            }
+        }
+
+        LearnedDefaults observed = new LearnedDefaults((double) kept.size() / limit, threshold);
+        learned.asMap().merge(key, observed, (previous, current) -> new LearnedDefaults(
+                average(previous.keptPerLimit(), current.keptPerLimit()),
+                average(previous.similarityThreshold(), current.similarityThreshold())));
+    }
+
+    private double average(double previous, double observed) {
+        return previous + learningRate * (observed - previous);
+    }
+}
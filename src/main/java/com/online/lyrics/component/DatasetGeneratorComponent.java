@@ -13,6 +13,10 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Component
 public class DatasetGeneratorComponent {
@@ -22,9 +26,18 @@ public class DatasetGeneratorComponent {
 
 
     public List<SongRequest> generateSongRequestFromCSV(String csvFilePath) throws IOException {
-        List<Map<String, Object>> songs = new ArrayList<>();
+        try (Stream<SongRequest> songRequests = streamSongRequestsFromCSV(csvFilePath)) {
+            return songRequests.collect(Collectors.toList());
+        }
+    }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(csvFilePath))) {
+    /**
+     * Lazily parses the CSV file, yielding one SongRequest per valid row as it is read.
+     * The returned stream holds the file open and must be closed by the caller.
+     */
+    public Stream<SongRequest> streamSongRequestsFromCSV(String csvFilePath) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(csvFilePath));
+        try {
             String headerLine = reader.readLine();
             if (headerLine == null) {
                 throw new IOException("File CSV is empty");
@@ -46,61 +59,62 @@ public class DatasetGeneratorComponent {
                 }
             }
 
-            String line;
-            int lineNumber = 1;
-
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                try {
-                    String[] values = parseCsvLine(line);
-
-                    if (values.length >= headers.length) {
-                        Map<String, Object> song = new HashMap<>();
-
-                        song.put("artist", getValue(values, columnIndexes, "Artist"));
-                        song.put("title", getValue(values, columnIndexes, "Title"));
-                        song.put("album", getValue(values, columnIndexes, "Album"));
-                        song.put("genre", determineGenre(
-                                getValue(values, columnIndexes, "Artist"),
-                                getValue(values, columnIndexes, "Title"),
-                                getValue(values, columnIndexes, "Lyric")
-                        ));
-
-                        // Gestisce l'anno
-                        String yearStr = getValue(values, columnIndexes, "Year");
-                        try {
-                            song.put("releaseYear", Integer.parseInt(yearStr));
-                        } catch (NumberFormatException e) {
-                            song.put("releaseYear", 1970);
-                        }
-
-                        song.put("lyrics", getValue(values, columnIndexes, "Lyric"));
-
-                        songs.add(song);
-                    }
-                } catch (Exception e) {
-                    logger.error("Error at line: " + lineNumber + ": " + e.getMessage());
-                }
-            }
+            AtomicInteger lineNumber = new AtomicInteger(1);
+
+            return reader.lines()
+                    .map(line -> parseSongRequest(line, lineNumber.incrementAndGet(), headers.length, columnIndexes))
+                    .filter(Objects::nonNull)
+                    .onClose(() -> closeQuietly(reader));
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(reader);
+            throw e;
         }
-        List<SongRequest> songRequestList = new ArrayList<>();
-        for(Map<String, Object> song:songs){
-            SongRequest songRequest = new SongRequest(song.get("title")!=null?(String)song.get("title"):"N/A",
-                    song.get("artist")!=null?(String) song.get("artist"):"N/A",
-                    song.get("album")!=null?(String) song.get("album"):"N/A",
-                    song.get("genre")!=null?(String) song.get("genre"):"N/A",
+    }
+
+    private SongRequest parseSongRequest(String line, int lineNumber, int columnCount, Map<String, Integer> columnIndexes) {
+        try {
+            String[] values = parseCsvLine(line);
+            if (values.length < columnCount) {
+                return null;
+            }
+
+            String artist = getValue(values, columnIndexes, "Artist");
+            String title = getValue(values, columnIndexes, "Title");
+            String album = getValue(values, columnIndexes, "Album");
+            String lyrics = getValue(values, columnIndexes, "Lyric");
+            String genre = determineGenre(artist, title, lyrics);
+
+            // Gestisce l'anno
+            Integer releaseYear;
+            try {
+                releaseYear = Integer.parseInt(getValue(values, columnIndexes, "Year"));
+            } catch (NumberFormatException e) {
+                releaseYear = 1970;
+            }
+
+            return new SongRequest(title != null ? title : "N/A",
+                    artist != null ? artist : "N/A",
+                    album != null ? album : "N/A",
+                    genre,
                     "N/A",
                     "N/A",
-                    song.get("lyrics")!=null?(String) song.get("lyrics"):"N/A",
-                    (Integer)song.get("releaseYear"));
-
-            songRequestList.add(songRequest);
+                    lyrics != null ? lyrics : "N/A",
+                    releaseYear);
+        } catch (Exception e) {
+            logger.error("Error at line: " + lineNumber + ": " + e.getMessage());
+            return null;
         }
+    }
 
-        return songRequestList;
+    private void closeQuietly(BufferedReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close CSV reader: " + e.getMessage());
+        }
     }
 
-    private String[] parseCsvLine(String line) {
+    String[] parseCsvLine(String line) {
         List<String> values = new ArrayList<>();
         boolean inQuotes = false;
         StringBuilder current = new StringBuilder();
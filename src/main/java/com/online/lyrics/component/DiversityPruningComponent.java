@@ -0,0 +1,140 @@
+package com.online.lyrics.component;
+
+import com.online.lyrics.vector.HnswIndex;
+import com.online.lyrics.vector.LyricsVectorCollection;
+import com.online.lyrics.vector.VectorLookup;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Prunes re-ranking candidates to a diverse subset with maximal marginal relevance (MMR), so the
+ * LLM is not asked to rank several near-identical songs.
+ * <p>
+ * Candidates are picked greedily by {@code lambda * relevance - (1 - lambda) * redundancy}, where relevance
+ * falls linearly with the search rank and redundancy is the highest similarity to an already picked
+ * candidate. Similarity is the cosine of the stored embeddings, raised to 1 for another version of the same
+ * song (same artist and title) and to {@code artistSimilarity} for another song of the same artist. The
+ * picked candidates are returned in their original order.
+ */
+@Slf4j
+@Component
+public class DiversityPruningComponent {
+
+    private final VectorLookup vectorLookup;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int maxCandidates;
+    private final double lambda;
+    private final double artistSimilarity;
+
+    public DiversityPruningComponent(VectorStore vectorStore,
+                                     LyricsVectorCollection vectorCollection,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${lyrics.rerank.diversity.enabled:true}") boolean enabled,
+                                     @Value("${lyrics.rerank.diversity.max-candidates:30}") int maxCandidates,
+                                     @Value("${lyrics.rerank.diversity.lambda:0.7}") double lambda,
+                                     @Value("${lyrics.rerank.diversity.artist-similarity:0.5}") double artistSimilarity) {
+        // In-process stores hold the vectors already; otherwise they are read from the collection
+        this.vectorLookup = vectorStore instanceof VectorLookup local ? local : vectorCollection;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxCandidates = maxCandidates;
+        this.lambda = lambda;
+        this.artistSimilarity = artistSimilarity;
+    }
+
+    /**
+     * Returns at most {@code max(limit, maxCandidates)} of the relevance-ordered {@code candidates}.
+     */
+    public List<Document> prune(List<Document> candidates, int limit) {
+        int size = Math.max(limit, maxCandidates);
+        if (!enabled || candidates.size() <= size) {
+            return candidates;
+        }
+
+        try {
+            List<Document> pruned = selectDiverse(candidates, size);
+            meterRegistry.counter("lyrics.rerank.diversity.pruned").increment(candidates.size() - pruned.size());
+            log.debug("Pruned {} candidates to {} diverse candidates", candidates.size(), pruned.size());
+            return pruned;
+        } catch (Exception e) {
+            // Pruning only saves LLM work; keep the best ranked candidates if it cannot run
+            log.warn("Failed to prune candidates by diversity, keeping the top {}", size, e);
+            return candidates.subList(0, size);
+        }
+    }
+
+    private List<Document> selectDiverse(List<Document> candidates, int size) {
+        int n = candidates.size();
+        Map<String, float[]> vectors = vectorLookup.vectors(candidates.stream().map(Document::getId).toList());
+
+        float[][] normalized = new float[n][];
+        String[] artists = new String[n];
+        String[] titles = new String[n];
+        for (int i = 0; i < n; i++) {
+            Document candidate = candidates.get(i);
+            float[] vector = vectors.get(candidate.getId());
+            normalized[i] = vector != null ? HnswIndex.normalize(vector) : null;
+            artists[i] = metadataKey(candidate, "artist");
+            titles[i] = metadataKey(candidate, "title");
+        }
+
+        boolean[] selected = new boolean[n];
+        double[] redundancy = new double[n];
+        // The first candidate is the most relevant and nothing is picked yet
+        int next = 0;
+        for (int picked = 0; picked < size; picked++) {
+            selected[next] = true;
+
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (selected[i]) {
+                    continue;
+                }
+                redundancy[i] = Math.max(redundancy[i], similarity(normalized, artists, titles, i, next));
+                double relevance = 1.0 - (double) i / n;
+                double score = lambda * relevance - (1 - lambda) * redundancy[i];
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+            next = best;
+        }
+
+        List<Document> pruned = new ArrayList<>(size);
+        for (int i = 0; i < n; i++) {
+            if (selected[i]) {
+                pruned.add(candidates.get(i));
+            }
+        }
+        return pruned;
+    }
+
+    private double similarity(float[][] normalized, String[] artists, String[] titles, int a, int b) {
+        double similarity = 0;
+        if (normalized[a] != null && normalized[b] != null) {
+            similarity = HnswIndex.dot(normalized[a], normalized[b]);
+        }
+        if (artists[a] != null && artists[a].equals(artists[b])) {
+            boolean sameSong = titles[a] != null && titles[a].equals(titles[b]);
+            similarity = Math.max(similarity, sameSong ? 1.0 : artistSimilarity);
+        }
+        return similarity;
+    }
+
+    private static String metadataKey(Document document, String key) {
+        Object value = document.getMetadata().get(key);
+        return value != null ? value.toString().trim().toLowerCase(Locale.ROOT) : null;
+    }
+}
@@ -0,0 +1,159 @@
+package com.online.lyrics.component;
+
+import com.online.lyrics.model.EmbeddingBatchResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Embeds documents in fixed-size batches on virtual threads. The number of batches in flight
+ * against the embedding backend is capped across all callers, and failed batches are retried
+ * with exponential backoff before being reported as failed.
+ */
+@Slf4j
+@Component
+public class EmbeddingPipelineComponent {
+
+    private final VectorStore vectorStore;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Semaphore concurrentBatches;
+    private final MeterRegistry meterRegistry;
+    private final Timer successfulBatches;
+    private final Timer failedBatches;
+    private final Counter retries;
+
+    public EmbeddingPipelineComponent(VectorStore vectorStore,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${lyrics.embedding.batch-size:32}") int batchSize,
+                                      @Value("${lyrics.embedding.max-concurrent-batches:4}") int maxConcurrentBatches,
+                                      @Value("${lyrics.embedding.max-attempts:3}") int maxAttempts,
+                                      @Value("${lyrics.embedding.initial-backoff:PT1S}") Duration initialBackoff,
+                                      @Value("${lyrics.embedding.max-backoff:PT30S}") Duration maxBackoff) {
+        if (batchSize < 1 || maxConcurrentBatches < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Embedding batch size, concurrency and attempts must be positive");
+        }
+        this.vectorStore = vectorStore;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.concurrentBatches = new Semaphore(maxConcurrentBatches, true);
+        this.successfulBatches = batchTimer("success");
+        this.failedBatches = batchTimer("failure");
+        this.retries = meterRegistry.counter("lyrics.embedding.retries");
+    }
+
+    /**
+     * A document batch outcome; {@code failedDocuments} is empty when the batch succeeded.
+     */
+    public record Outcome(EmbeddingBatchResult result, List<Document> failedDocuments) {
+    }
+
+    /**
+     * Embeds the documents into the vector store, batch by batch and concurrently.
+     *
+     * @param documents the documents to embed
+     * @return the per-batch counts and the documents of batches that failed after all retries
+     */
+    public Outcome embed(List<Document> documents) {
+        if (documents.isEmpty()) {
+            return new Outcome(EmbeddingBatchResult.EMPTY, Collections.emptyList());
+        }
+
+        List<List<Document>> batches = new ArrayList<>();
+        for (int from = 0; from < documents.size(); from += batchSize) {
+            batches.add(documents.subList(from, Math.min(from + batchSize, documents.size())));
+        }
+
+        List<Future<Boolean>> futures = new ArrayList<>(batches.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (List<Document> batch : batches) {
+                futures.add(executor.submit(() -> embedBatch(batch)));
+            }
+        }
+
+        EmbeddingBatchResult result = EmbeddingBatchResult.EMPTY;
+        List<Document> failedDocuments = new ArrayList<>();
+        for (int i = 0; i < batches.size(); i++) {
+            List<Document> batch = batches.get(i);
+            if (succeeded(futures.get(i))) {
+                result = result.merge(EmbeddingBatchResult.succeeded(batch.size()));
+            } else {
+                result = result.merge(EmbeddingBatchResult.failed(batch.size()));
+                failedDocuments.addAll(batch);
+            }
+        }
+
+        log.debug("Embedded {} documents in {} batches ({} failed)",
+                result.embeddedDocuments(), batches.size(), result.failedBatches());
+        return new Outcome(result, failedDocuments);
+    }
+
+    private boolean embedBatch(List<Document> batch) throws InterruptedException {
+        concurrentBatches.acquire();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                try {
+                    vectorStore.add(batch);
+                    sample.stop(successfulBatches);
+                    return true;
+                } catch (Exception e) {
+                    sample.stop(failedBatches);
+                    if (attempt >= maxAttempts) {
+                        log.error("Embedding batch of {} documents failed after {} attempts", batch.size(), attempt, e);
+                        return false;
+                    }
+                    Duration backoff = backoff(attempt);
+                    log.warn("Embedding batch of {} documents failed (attempt {}/{}), retrying in {} ms: {}",
+                            batch.size(), attempt, maxAttempts, backoff.toMillis(), e.getMessage());
+                    retries.increment();
+                    Thread.sleep(backoff.toMillis());
+                }
+            }
+        } finally {
+            concurrentBatches.release();
+        }
+    }
+
+    private Timer batchTimer(String outcome) {
+        return Timer.builder("lyrics.embedding.batch")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Duration backoff(int attempt) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempt - 1, 20));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    private boolean succeeded(Future<Boolean> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.online.lyrics.component;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * In-process re-ranker: combines the vector similarity of each candidate with mood-lexicon and
+ * lexical matches in its lyrics, title, genre and description. Runs in microseconds per candidate
+ * and needs no model, so it can stand in for the LLM when that is slow or saturated.
+ */
+@Slf4j
+@Component
+public class LocalRerankComponent implements RerankStrategy {
+
+    private static final double VECTOR_WEIGHT = 0.6;
+    private static final double LEXICON_WEIGHT = 0.25;
+    private static final double LEXICAL_WEIGHT = 0.15;
+    private static final int MOTIVATION_TERMS = 3;
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "the", "and", "for", "with", "that", "this", "some", "songs", "song", "music", "want", "feel",
+            "feeling", "like", "something", "about", "mood", "very", "really", "from", "into", "me");
+
+    // Mood categories and the words that signal them, in the requested mood as well as in lyrics
+    private static final Map<String, Set<String>> MOOD_LEXICON = Map.of(
+            "happy", Set.of("happy", "joy", "joyful", "smile", "sunshine", "sun", "celebrate", "fun", "bright",
+                    "laugh", "party", "cheerful", "upbeat", "good", "glad", "sunny"),
+            "sad", Set.of("sad", "cry", "crying", "tears", "lonely", "alone", "broken", "goodbye", "miss",
+                    "pain", "sorrow", "heartbreak", "heartbroken", "blue", "melancholy", "melancholic", "grief"),
+            "angry", Set.of("angry", "anger", "rage", "hate", "fight", "scream", "mad", "burn", "war", "furious",
+                    "revenge", "aggressive"),
+            "calm", Set.of("calm", "peace", "peaceful", "quiet", "slow", "gentle", "breathe", "soft", "still",
+                    "relax", "relaxing", "chill", "serene", "sleep", "mellow"),
+            "romantic", Set.of("love", "lover", "heart", "kiss", "baby", "darling", "hold", "together", "forever",
+                    "romance", "romantic", "tender", "desire"),
+            "energetic", Set.of("energy", "energetic", "run", "jump", "wild", "loud", "power", "alive", "fast",
+                    "move", "workout", "pump", "dance", "dancing", "rush", "hype"),
+            "nostalgic", Set.of("remember", "memories", "memory", "yesterday", "old", "young", "past", "home",
+                    "summer", "childhood", "nostalgic", "nostalgia", "ago"),
+            "dark", Set.of("dark", "darkness", "night", "shadow", "death", "die", "cold", "ghost", "black", "fear",
+                    "lost", "haunted", "gloomy"));
+
+    @Override
+    public String name() {
+        return "local";
+    }
+
+    @Override
+    public List<Document> rerank(String mood, List<Document> docs) {
+        long start = System.nanoTime();
+
+        List<String> moodTerms = tokenize(mood).stream()
+                .filter(term -> term.length() > 2 && !STOP_WORDS.contains(term))
+                .distinct()
+                .toList();
+        Set<String> moodCategories = moodCategories(moodTerms);
+        Set<String> lexiconWords = moodCategories.stream()
+                .flatMap(category -> MOOD_LEXICON.get(category).stream())
+                .collect(Collectors.toSet());
+
+        List<Candidate> candidates = new ArrayList<>(docs.size());
+        for (Document doc : docs) {
+            candidates.add(score(doc, moodTerms, lexiconWords));
+        }
+
+        // Vector scores are already in [0, 1]; lexicon densities are scaled relative to the best candidate
+        double maxLexicon = candidates.stream().mapToDouble(candidate -> candidate.lexicon).max().orElse(0);
+        if (maxLexicon > 0) {
+            candidates.forEach(candidate -> candidate.lexicon /= maxLexicon);
+        }
+
+        for (Candidate candidate : candidates) {
+            double score = VECTOR_WEIGHT * candidate.vector
+                    + LEXICON_WEIGHT * candidate.lexicon
+                    + LEXICAL_WEIGHT * candidate.lexical;
+            candidate.document.getMetadata().put("rerankScore", Math.round(score * 1000) / 1000.0);
+            candidate.document.getMetadata().put("motivation", motivation(candidate, moodCategories));
+        }
+
+        List<Document> reranked = candidates.stream()
+                .sorted(Comparator.comparingDouble((Candidate candidate) ->
+                        (Double) candidate.document.getMetadata().get("rerankScore")).reversed())
+                .map(candidate -> candidate.document)
+                .toList();
+
+        log.debug("Locally re-ranked {} documents for mood: '{}' (categories {}) in {} µs",
+                reranked.size(), mood, moodCategories, (System.nanoTime() - start) / 1000);
+        return reranked;
+    }
+
+    private Candidate score(Document doc, List<String> moodTerms, Set<String> lexiconWords) {
+        List<String> tokens = new ArrayList<>(tokenize(doc.getText()));
+        for (String key : List.of("title", "genre", "description")) {
+            Object value = doc.getMetadata().get(key);
+            if (value != null) {
+                tokens.addAll(tokenize(value.toString()));
+            }
+        }
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        tokens.forEach(token -> frequencies.merge(token, 1, Integer::sum));
+
+        Candidate candidate = new Candidate(doc);
+        candidate.vector = vectorSimilarity(doc);
+
+        // Mood lexicon density, damped by document length
+        Map<String, Integer> lexiconHits = new LinkedHashMap<>();
+        int hits = 0;
+        for (String word : lexiconWords) {
+            Integer frequency = frequencies.get(word);
+            if (frequency != null) {
+                lexiconHits.put(word, frequency);
+                hits += frequency;
+            }
+        }
+        candidate.lexicon = tokens.isEmpty() ? 0 : hits / Math.sqrt(tokens.size());
+        candidate.lexiconTerms = topTerms(lexiconHits);
+
+        // Saturating term frequency of the requested mood's own words
+        Map<String, Integer> termHits = new LinkedHashMap<>();
+        double lexical = 0;
+        for (String term : moodTerms) {
+            Integer frequency = frequencies.get(term);
+            if (frequency != null) {
+                termHits.put(term, frequency);
+                lexical += frequency / (frequency + 1.2);
+            }
+        }
+        candidate.lexical = moodTerms.isEmpty() ? 0 : lexical / moodTerms.size();
+        candidate.matchedTerms = topTerms(termHits);
+        return candidate;
+    }
+
+    private double vectorSimilarity(Document doc) {
+        if (doc.getScore() != null) {
+            return doc.getScore();
+        }
+        Object distance = doc.getMetadata().get("distance");
+        return distance instanceof Number number ? 1.0 - number.doubleValue() : 0.0;
+    }
+
+    private String motivation(Candidate candidate, Set<String> moodCategories) {
+        String genre = extractGenre(candidate.document);
+        StringBuilder motivation = new StringBuilder(StringUtils.hasText(genre) ? genre + " track" : "Track");
+
+        if (!candidate.lexiconTerms.isEmpty()) {
+            motivation.append(" with ").append(String.join("/", moodCategories)).append(" lyrics: ")
+                    .append(String.join(", ", candidate.lexiconTerms));
+        } else if (!candidate.matchedTerms.isEmpty()) {
+            motivation.append(" mentioning ").append(String.join(", ", candidate.matchedTerms));
+        } else {
+            motivation.append(" semantically close to the requested mood");
+        }
+        return motivation.length() > 100 ? motivation.substring(0, 97) + "..." : motivation.toString();
+    }
+
+    private String extractGenre(Document doc) {
+        Object genre = doc.getMetadata().get("genre");
+        return genre != null ? genre.toString().trim() : null;
+    }
+
+    private static Set<String> moodCategories(List<String> moodTerms) {
+        Set<String> categories = new LinkedHashSet<>();
+        for (String term : moodTerms) {
+            MOOD_LEXICON.forEach((category, words) -> {
+                if (category.equals(term) || words.contains(term)) {
+                    categories.add(category);
+                }
+            });
+        }
+        return categories;
+    }
+
+    private static List<String> topTerms(Map<String, Integer> hits) {
+        return hits.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(MOTIVATION_TERMS)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private static List<String> tokenize(String text) {
+        if (!StringUtils.hasText(text)) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Candidate {
+        private final Document document;
+        private double vector;
+        private double lexicon;
+        private double lexical;
+        private List<String> lexiconTerms = List.of();
+        private List<String> matchedTerms = List.of();
+
+        private Candidate(Document document) {
+            this.document = document;
+        }
+    }
+}
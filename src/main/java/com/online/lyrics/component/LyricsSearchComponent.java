@@ -0,0 +1,185 @@
+package com.online.lyrics.component;
+
+import com.online.lyrics.event.SongsIngestedEvent;
+import com.online.lyrics.model.Song;
+import com.online.lyrics.model.SongSummary;
+import com.online.lyrics.repository.SongRepository;
+import com.online.lyrics.search.Bm25Index;
+import com.online.lyrics.vector.MetadataFilterEvaluator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Keyword search over song lyrics, titles and artists backed by an in-memory {@link Bm25Index}.
+ * The index is built from the songs collection at startup and updated as songs are ingested.
+ */
+@Slf4j
+@Component
+public class LyricsSearchComponent {
+
+    // The keyword index holds no metadata, so filtered searches fetch more matches to filter afterwards
+    private static final int FILTER_OVERSAMPLING = 5;
+
+    private final MongoTemplate mongoTemplate;
+    private final SongRepository songRepository;
+    private final SongSummaryComponent songSummaryComponent;
+    private final Bm25Index index;
+    private final boolean enabled;
+
+    // Ids of songs ingested while the index is being built, or null when no build is running
+    private final Object buildLock = new Object();
+    private Set<String> ingestedDuringBuild;
+
+    public LyricsSearchComponent(MongoTemplate mongoTemplate,
+                                 SongRepository songRepository,
+                                 SongSummaryComponent songSummaryComponent,
+                                 @Value("${lyrics.hybrid.enabled:true}") boolean enabled,
+                                 @Value("${lyrics.hybrid.field-boost:3}") int fieldBoost) {
+        this.mongoTemplate = mongoTemplate;
+        this.songRepository = songRepository;
+        this.songSummaryComponent = songSummaryComponent;
+        this.enabled = enabled;
+        this.index = new Bm25Index(fieldBoost);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Builds the index in the background so startup is not delayed; until then searches return nothing.
+     * Songs ingested meanwhile are indexed once the build is done, so the build cannot overwrite their new
+     * version with the one it streamed earlier.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (buildLock) {
+            ingestedDuringBuild = new LinkedHashSet<>();
+        }
+        Thread.ofVirtual().name("lyrics-index-build").start(() -> {
+            long start = System.currentTimeMillis();
+            Query query = new Query();
+            query.fields().include("title", "artist", "lyrics");
+
+            try (Stream<Song> songs = mongoTemplate.stream(query, Song.class)) {
+                songs.forEach(this::indexSong);
+                log.info("Indexed {} songs for keyword search in {} ms",
+                        index.size(), System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                log.error("Failed to build the keyword search index", e);
+            } finally {
+                replayIngestedDuringBuild();
+            }
+        });
+    }
+
+    @EventListener
+    public void onSongsIngested(SongsIngestedEvent event) {
+        if (!enabled || event.songIds().isEmpty()) {
+            return;
+        }
+        synchronized (buildLock) {
+            if (ingestedDuringBuild != null) {
+                ingestedDuringBuild.addAll(event.songIds());
+                return;
+            }
+        }
+        songRepository.findAllById(event.songIds()).forEach(this::indexSong);
+    }
+
+    // Under the lock, so later events wait and read their songs after the replayed ones
+    private void replayIngestedDuringBuild() {
+        synchronized (buildLock) {
+            try {
+                if (!ingestedDuringBuild.isEmpty()) {
+                    songRepository.findAllById(ingestedDuringBuild).forEach(this::indexSong);
+                    log.info("Indexed {} songs ingested during the keyword index build", ingestedDuringBuild.size());
+                }
+            } catch (Exception e) {
+                log.error("Failed to index songs ingested during the keyword index build", e);
+            } finally {
+                ingestedDuringBuild = null;
+            }
+        }
+    }
+
+    /**
+     * Returns up to {@code k} songs matching the query as documents carrying the same metadata keys as
+     * vector search results, plus {@code bm25Score}.
+     */
+    public List<Document> search(String query, int k) {
+        return search(query, k, null);
+    }
+
+    /**
+     * Like {@link #search(String, int)}, returning only songs whose metadata matches {@code filter}
+     * ({@code null} for all songs).
+     */
+    public List<Document> search(String query, int k, Filter.Expression filter) {
+        if (!enabled) {
+            return List.of();
+        }
+        List<Bm25Index.Match> matches = index.search(query, filter != null ? k * FILTER_OVERSAMPLING : k);
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+
+        Map<String, SongSummary> songsById = songSummaryComponent.findAllById(
+                matches.stream().map(Bm25Index.Match::id).toList());
+
+        List<Document> documents = new ArrayList<>(matches.size());
+        for (Bm25Index.Match match : matches) {
+            SongSummary song = songsById.get(match.id());
+            if (song == null) {
+                // Deleted since it was indexed
+                index.remove(match.id());
+                continue;
+            }
+            Map<String, Object> metadata = new HashMap<>();
+            putIfPresent(metadata, "songId", song.songId());
+            putIfPresent(metadata, "title", song.title());
+            putIfPresent(metadata, "artist", song.artist());
+            putIfPresent(metadata, "album", song.album());
+            putIfPresent(metadata, "genre", song.genre());
+            putIfPresent(metadata, "releaseYear", song.releaseYear());
+            metadata.put("bm25Score", match.score());
+            if (filter != null && !MetadataFilterEvaluator.matches(filter, metadata)) {
+                continue;
+            }
+            documents.add(Document.builder().id(song.songId()).text("").metadata(metadata).build());
+            if (documents.size() == k) {
+                break;
+            }
+        }
+        return documents;
+    }
+
+    // Document metadata may not contain null values
+    private static void putIfPresent(Map<String, Object> metadata, String key, Object value) {
+        if (value != null) {
+            metadata.put(key, value);
+        }
+    }
+
+    private void indexSong(Song song) {
+        index.add(song.getId(), song.getTitle(), song.getArtist(), song.getLyrics());
+    }
+}
@@ -0,0 +1,76 @@
+package com.online.lyrics.component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bounded cache of query embeddings keyed on the normalized mood.
+ * Repeated moods reuse the cached {@code float[]} instead of calling the embedding model.
+ */
+@Slf4j
+@Component
+public class QueryEmbeddingComponent {
+
+    private final EmbeddingModel embeddingModel;
+    private final Cache<String, float[]> cache;
+
+    public QueryEmbeddingComponent(EmbeddingModel embeddingModel,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${lyrics.query-embedding-cache.maximum-size:1000}") long maximumSize,
+                                   @Value("${lyrics.query-embedding-cache.expire-after-write:PT6H}") Duration expireAfterWrite) {
+        this.embeddingModel = embeddingModel;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "lyrics.query-embedding");
+    }
+
+    /**
+     * Returns the embedding of {@code query}, cached under the normalized mood.
+     */
+    public float[] embed(String normalizedMood, String query) {
+        return cache.get(normalizedMood, key -> {
+            log.debug("Query embedding cache miss for mood: '{}'", key);
+            return embeddingModel.embed(query);
+        });
+    }
+
+    /**
+     * Returns the embeddings of several queries keyed by normalized mood. Cache misses are embedded
+     * together in a single embedding model call.
+     */
+    public Map<String, float[]> embedAll(Map<String, String> queriesByMood) {
+        if (queriesByMood.isEmpty()) {
+            return Map.of();
+        }
+        return cache.getAll(queriesByMood.keySet(), missing -> {
+            List<String> moods = List.copyOf(missing);
+            List<float[]> embeddings = embeddingModel.embed(moods.stream().map(queriesByMood::get).toList());
+            log.debug("Embedded {} uncached moods in one batch", moods.size());
+
+            Map<String, float[]> loaded = new HashMap<>();
+            for (int i = 0; i < moods.size(); i++) {
+                loaded.put(moods.get(i), embeddings.get(i));
+            }
+            return loaded;
+        });
+    }
+
+    public static String normalizeMood(String mood) {
+        return mood == null ? "" : mood.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,116 @@
+package com.online.lyrics.component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental parser of a streamed JSON ranking array, fed chunk by chunk as the model generates it.
+ * <p>
+ * Text before the opening {@code [} (such as a markdown fence) is skipped, as is anything after the
+ * closing {@code ]}. Every ranking item is returned as soon as its object is closed; nested values
+ * inside an item are ignored. Not thread-safe.
+ */
+class RankingStreamParser {
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private boolean started;
+    private boolean complete;
+    private int depth;
+    private Map<String, Object> item;
+    private String field;
+
+    RankingStreamParser(JsonFactory jsonFactory) throws IOException {
+        this.parser = jsonFactory.createNonBlockingByteArrayParser();
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * Feeds the next chunk of generated text.
+     *
+     * @return the ranking items completed by this chunk, in order
+     */
+    List<Map<String, Object>> feed(String chunk) throws IOException {
+        if (complete || chunk == null || chunk.isEmpty()) {
+            return List.of();
+        }
+        if (!started) {
+            int start = chunk.indexOf('[');
+            if (start < 0) {
+                return List.of();
+            }
+            started = true;
+            chunk = chunk.substring(start);
+        }
+
+        byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+        feeder.feedInput(bytes, 0, bytes.length);
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        JsonToken token;
+        while (!complete && (token = parser.nextToken()) != JsonToken.NOT_AVAILABLE && token != null) {
+            readToken(token, items);
+        }
+        return items;
+    }
+
+    /**
+     * Whether the closing bracket of the ranking array was read.
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    private void readToken(JsonToken token, List<Map<String, Object>> items) throws IOException {
+        switch (token) {
+            case START_ARRAY, START_OBJECT -> {
+                depth++;
+                if (depth == 2 && token == JsonToken.START_OBJECT) {
+                    item = new HashMap<>();
+                }
+                // The field of a nested value is consumed by it
+                field = null;
+            }
+            case END_ARRAY, END_OBJECT -> {
+                if (depth == 2 && item != null) {
+                    items.add(item);
+                    item = null;
+                }
+                depth--;
+                complete = depth == 0;
+            }
+            case FIELD_NAME -> {
+                // Field names inside nested values never name an item field
+                if (depth == 2) {
+                    field = parser.currentName();
+                }
+            }
+            default -> {
+                // Only scalar fields of the ranking items themselves
+                if (depth == 2 && item != null && field != null) {
+                    item.put(field, scalarValue(token));
+                }
+                field = null;
+            }
+        }
+    }
+
+    private Object scalarValue(JsonToken token) throws IOException {
+        return switch (token) {
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getNumberValue();
+            case VALUE_TRUE, VALUE_FALSE -> parser.getBooleanValue();
+            case VALUE_NULL -> null;
+            default -> parser.getText();
+        };
+    }
+}
@@ -0,0 +1,145 @@
+package com.online.lyrics.component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.online.lyrics.event.IngestionCompletedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Caches parsed re-ranking results keyed on the normalized mood and an order-independent
+ * fingerprint of the candidate song ids, so repeated requests skip the LLM call.
+ * <p>
+ * A ranking whose generation was stopped early is cached as a prefix and only serves requests whose
+ * limit it covers; a complete ranking serves any limit and is never replaced by a prefix.
+ */
+@Slf4j
+@Component
+public class RerankCacheComponent {
+
+    private final Cache<String, CachedRanking> cache;
+    private final boolean enabled;
+
+    public RerankCacheComponent(MeterRegistry meterRegistry,
+                                @Value("${lyrics.rerank-cache.enabled:true}") boolean enabled,
+                                @Value("${lyrics.rerank-cache.maximum-size:500}") long maximumSize,
+                                @Value("${lyrics.rerank-cache.expire-after-write:PT1H}") Duration expireAfterWrite) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "lyrics.rerank");
+    }
+
+    /**
+     * A cached ranking entry, identified by song id rather than prompt position.
+     */
+    public record RankedSong(String songId, Double score, String motivation) {
+    }
+
+    /**
+     * @param covered distinct songs the ranking is known to hold the best of, in order;
+     *                {@link Integer#MAX_VALUE} for a complete ranking
+     */
+    private record CachedRanking(List<RankedSong> songs, int covered) {
+    }
+
+    /**
+     * Returns the cached ranking of {@code candidates} if it ranks at least the first {@code limit} songs.
+     */
+    public Optional<List<RankedSong>> get(String mood, List<Document> candidates, int limit) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        int needed = Math.min(limit, candidates.size());
+        return cacheKey(mood, candidates)
+                .map(cache::getIfPresent)
+                .filter(cached -> cached.covered() >= needed)
+                .map(CachedRanking::songs);
+    }
+
+    /**
+     * Caches a complete ranking of {@code candidates}.
+     */
+    public void put(String mood, List<Document> candidates, List<RankedSong> ranking) {
+        put(mood, candidates, new CachedRanking(List.copyOf(ranking), Integer.MAX_VALUE));
+    }
+
+    /**
+     * Caches the leading part of a ranking of {@code candidates} whose generation was stopped early.
+     */
+    public void putPrefix(String mood, List<Document> candidates, List<RankedSong> prefix) {
+        put(mood, candidates, new CachedRanking(List.copyOf(prefix), distinctSongs(prefix)));
+    }
+
+    private void put(String mood, List<Document> candidates, CachedRanking ranking) {
+        if (!enabled || ranking.songs().isEmpty()) {
+            return;
+        }
+        // Keep whichever ranking serves more limits
+        cacheKey(mood, candidates).ifPresent(key -> cache.asMap().merge(key, ranking,
+                (previous, current) -> current.covered() >= previous.covered() ? current : previous));
+    }
+
+    private static int distinctSongs(List<RankedSong> ranking) {
+        Set<String> songIds = new HashSet<>();
+        for (RankedSong rankedSong : ranking) {
+            songIds.add(rankedSong.songId());
+        }
+        return songIds.size();
+    }
+
+    /**
+     * Drops all rankings once per ingestion run rather than per ingested chunk.
+     */
+    @EventListener
+    public void onIngestionCompleted(IngestionCompletedEvent event) {
+        log.info("Invalidating re-ranking cache after ingestion of {} songs", event.embeddedSongs());
+        cache.invalidateAll();
+    }
+
+    private Optional<String> cacheKey(String mood, List<Document> candidates) {
+        List<String> songIds = new ArrayList<>(candidates.size());
+        for (Document candidate : candidates) {
+            Object songId = candidate.getMetadata().get("songId");
+            if (songId == null) {
+                return Optional.empty();
+            }
+            songIds.add(songId.toString());
+        }
+        songIds.sort(null);
+
+        return Optional.of(QueryEmbeddingComponent.normalizeMood(mood) + "|" + fingerprint(songIds));
+    }
+
+    private String fingerprint(List<String> sortedSongIds) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String songId : sortedSongIds) {
+                digest.update(songId.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
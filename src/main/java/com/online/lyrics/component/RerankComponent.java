@@ -2,48 +2,124 @@ package com.online.lyrics.component;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.Usage;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.stream.IntStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class RerankComponent {
+public class RerankComponent implements RerankStrategy {
 
     private static final String DEFAULT_MOTIVATION = "Relevant to the requested mood";
     private static final int MAX_RERANK_DOCUMENTS = 50;
+    // Keys of a ranking item: 1-based document index, score and optional motivation
+    private static final String INDEX_KEY = "i";
+    private static final String SCORE_KEY = "s";
+    private static final String MOTIVATION_KEY = "m";
+    // Token estimates: ~4 characters per token, fixed prompt text, one {"i":12,"s":0.87}, one motivation
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int PROMPT_OVERHEAD_TOKENS = 90;
+    private static final int RANKING_ITEM_TOKENS = 12;
+    private static final int MOTIVATION_TOKENS = 18;
     private static final String JSON_WRAPPER_REGEX = "(?s)```json\\s*";
     private static final String MARKDOWN_END_REGEX = "(?s)```";
 
     private final ChatModel chatModel;
     private final ObjectMapper objectMapper;
+    private final RerankCacheComponent rerankCacheComponent;
+    private final MeterRegistry meterRegistry;
 
+    // Documents per re-ranking prompt; 0 sends all candidates in a single prompt
+    @Value("${lyrics.rerank.shard-size:0}")
+    private int shardSize;
+
+    // Estimated prompt plus completion tokens per re-ranking call; 0 disables the limit
+    @Value("${lyrics.rerank.prompt.token-budget:1500}")
+    private int tokenBudget;
+
+    // Ranking items that get a motivation; the others use the default motivation
+    @Value("${lyrics.rerank.prompt.motivations:10}")
+    private int motivations;
+
+    // Parse the ranking while it is generated and stop once the requested number of songs is ranked;
+    // switched off by the first request or shard that finds the chat model cannot stream
+    @Value("${lyrics.rerank.streaming:true}")
+    private volatile boolean streaming;
+
+    private final ExecutorService shardExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private Timer llmTimer;
+
+    /**
+     * Ranked documents of one LLM call; {@code complete} is false when generation was stopped early.
+     */
+    private record Ranking(List<Document> documents, boolean complete) {
+    }
+
+    @Override
+    public String name() {
+        return "llm";
+    }
+
+    @Override
     public List<Document> rerank(String mood, List<Document> docs) {
+        return rerank(mood, docs, docs.size());
+    }
+
+    /**
+     * Re-ranks {@code docs}; when streaming, generation stops as soon as {@code limit} documents are ranked.
+     */
+    @Override
+    public List<Document> rerank(String mood, List<Document> docs, int limit) {
 
         log.info("Re-ranking {} documents for mood: '{}'", docs.size(), mood);
 
         try {
             // Limit documents to avoid token limits and improve performance
-            List<Document> documentsToRerank = limitDocuments(docs);
+            List<Document> documentsToRerank = fitToTokenBudget(limitDocuments(docs));
+
+            // Re-use a previous ranking of the same candidates for the same mood
+            Optional<List<RerankCacheComponent.RankedSong>> cachedRanking =
+                    rerankCacheComponent.get(mood, documentsToRerank, limit);
+            if (cachedRanking.isPresent()) {
+                List<Document> rerankedDocs = applyCachedRanking(documentsToRerank, cachedRanking.get());
+                log.info("Re-used cached ranking of {} documents for mood: '{}'", rerankedDocs.size(), mood);
+                return rerankedDocs;
+            }
 
-            // Create and execute re-ranking prompt
-            String prompt = buildRerankingPrompt(mood, documentsToRerank);
-            ChatResponse response = executeRerankingQuery(prompt);
+            if (shardSize > 0 && documentsToRerank.size() > shardSize) {
+                return rerankSharded(mood, documentsToRerank, limit);
+            }
 
-            // Parse and process the response
-            List<Map<String, Object>> ranking = parseRerankingResponse(response);
-            List<Document> rerankedDocs = applyRerankingResults(documentsToRerank, ranking);
+            Ranking ranking = rerankShard(mood, documentsToRerank, limit);
+            List<Document> rerankedDocs = ranking.documents();
+            // A ranking cut short at the limit only serves requests up to that limit
+            if (ranking.complete()) {
+                rerankCacheComponent.put(mood, documentsToRerank, toRankedSongs(rerankedDocs));
+            } else {
+                rerankCacheComponent.putPrefix(mood, documentsToRerank, toRankedSongs(rerankedDocs));
+            }
 
             log.info("Successfully re-ranked {} documents (from {} candidates) for mood: '{}'",
                     rerankedDocs.size(), docs.size(), mood);
@@ -56,6 +132,92 @@ public class RerankComponent {
         }
     }
 
+    @PostConstruct
+    void registerMetrics() {
+        llmTimer = Timer.builder("lyrics.rerank.llm")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        shardExecutor.shutdownNow();
+    }
+
+    private Ranking rerankShard(String mood, List<Document> docs, int limit) {
+        // Create and execute re-ranking prompt
+        String prompt = buildRerankingPrompt(mood, docs);
+        if (streaming) {
+            try {
+                return streamRerankingQuery(prompt, docs, limit);
+            } catch (UnsupportedOperationException e) {
+                log.warn("Chat model does not support streaming, re-ranking with blocking calls from now on");
+                streaming = false;
+            }
+        }
+        ChatResponse response = executeRerankingQuery(prompt);
+
+        // Parse and process the response
+        List<Map<String, Object>> ranking = parseRerankingResponse(response);
+        return new Ranking(applyRerankingResults(docs, ranking), true);
+    }
+
+    /**
+     * Re-ranks shards of {@code shardSize} documents concurrently and merges them by score. Documents of
+     * failed shards are kept after the ranked ones, in their original order.
+     */
+    private List<Document> rerankSharded(String mood, List<Document> docs, int limit) {
+        List<List<Document>> shards = new ArrayList<>();
+        for (int start = 0; start < docs.size(); start += shardSize) {
+            shards.add(docs.subList(start, Math.min(start + shardSize, docs.size())));
+        }
+        log.debug("Re-ranking {} documents in {} shards for mood: '{}'", docs.size(), shards.size(), mood);
+
+        // The top limit of every shard together hold the overall top limit
+        List<Future<Ranking>> futures = shards.stream()
+                .map(shard -> shardExecutor.submit(() -> rerankShard(mood, shard, limit)))
+                .toList();
+
+        List<Document> ranked = new ArrayList<>();
+        List<Document> unranked = new ArrayList<>();
+        int failedShards = 0;
+        boolean complete = true;
+        for (int i = 0; i < shards.size(); i++) {
+            try {
+                Ranking ranking = futures.get(i).get();
+                ranked.addAll(ranking.documents());
+                complete &= ranking.complete();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                throw new RuntimeException("Interrupted while re-ranking shards", e);
+            } catch (ExecutionException e) {
+                log.warn("Failed to re-rank shard {} of {} for mood: '{}', keeping its original order",
+                        i + 1, shards.size(), mood, e.getCause());
+                unranked.addAll(shards.get(i));
+                failedShards++;
+            }
+        }
+        if (ranked.isEmpty()) {
+            throw new RuntimeException("All " + shards.size() + " re-ranking shards failed");
+        }
+
+        // Stable sort: equal scores keep their shard order
+        ranked.sort(Comparator.comparing((Document doc) -> (Double) doc.getMetadata().get("rerankScore"),
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        if (unranked.isEmpty() && complete) {
+            rerankCacheComponent.put(mood, docs, toRankedSongs(ranked));
+        } else if (unranked.isEmpty()) {
+            // Every shard ranked at least its top limit, so only the merged top limit is in final order
+            rerankCacheComponent.putPrefix(mood, docs, toRankedSongs(ranked.subList(0, Math.min(limit, ranked.size()))));
+        }
+        ranked.addAll(unranked);
+
+        log.info("Successfully re-ranked {} documents in {} shards ({} failed) for mood: '{}'",
+                ranked.size(), shards.size(), failedShards, mood);
+        return ranked;
+    }
+
     private List<Document> limitDocuments(List<Document> docs) {
         if (docs.size() <= MAX_RERANK_DOCUMENTS) {
             return docs;
@@ -66,64 +228,80 @@ public class RerankComponent {
     }
 
 
-    private String buildRerankingPrompt(String mood, List<Document> docs) {
-        StringBuilder documentsText = new StringBuilder();
+    /**
+     * Keeps the leading documents whose estimated prompt and completion tokens fit in {@code tokenBudget}.
+     * The budget applies to each re-ranking call, so with sharding every shard is fitted on its own; the
+     * first shard that does not fit is cut short and becomes the last one.
+     */
+    private List<Document> fitToTokenBudget(List<Document> docs) {
+        if (tokenBudget <= 0) {
+            return docs;
+        }
 
-        IntStream.range(0, docs.size())
-                .forEach(i -> {
-                    Document doc = docs.get(i);
-                    String artist = extractMetadata(doc, "artist");
-                    String title = extractMetadata(doc, "title");
-                    String genre = extractMetadata(doc, "genre");
+        int promptSize = shardSize > 0 ? shardSize : docs.size();
+        int overhead = PROMPT_OVERHEAD_TOKENS + motivations * MOTIVATION_TOKENS;
+        int tokens = 0;
+        int fitting = 0;
+        while (fitting < docs.size()) {
+            int position = fitting % promptSize;
+            if (position == 0) {
+                tokens = overhead;
+            }
+            tokens += estimateTokens(documentLine(docs.get(fitting), position + 1)) + RANKING_ITEM_TOKENS;
+            // Always rank at least one document per prompt
+            if (tokens > tokenBudget && position > 0) {
+                break;
+            }
+            fitting++;
+        }
 
-                    documentsText.append("Doc ").append(i + 1).append(": ")
-                            .append("Artist: ").append(artist).append(", ")
-                            .append("Title: ").append(title);
+        if (fitting < docs.size()) {
+            log.info("Limiting documents from {} to {} for a re-ranking budget of {} tokens",
+                    docs.size(), fitting, tokenBudget);
+        }
+        return docs.subList(0, fitting);
+    }
 
-                    if (StringUtils.hasText(genre)) {
-                        documentsText.append(", Genre: ").append(genre);
-                    }
+    String buildRerankingPrompt(String mood, List<Document> docs) {
+        StringBuilder prompt = new StringBuilder()
+                .append("Rank these songs by how well they fit the mood \"").append(sanitizeInput(mood)).append("\".\n")
+                .append("Songs as index|artist|title|genre:\n");
+        for (int i = 0; i < docs.size(); i++) {
+            prompt.append(documentLine(docs.get(i), i + 1)).append('\n');
+        }
+        prompt.append("Answer with a JSON array only, best first, one item per song: {\"i\":index,\"s\":score from 0 to 1}.");
 
-                    documentsText.append("\n");
-                });
-
-        return String.format("""
-                You are a music recommendation ranking assistant.
-                
-                Rank the following songs based on their semantic relevance to the requested mood.
-                Consider the artist, title, genre, and overall musical style when determining relevance.
-                Provide a brief motivation for each ranking without referencing other songs.
-                
-                Requested Mood: %s
-                
-                Songs to rank:
-                %s
-                
-                Instructions:
-                - Return ONLY a JSON array
-                - Include ALL documents in your response
-                - Sort by relevance (most relevant first)
-                - Score should be between 0.0 and 1.0
-                - Keep motivations concise (max 100 characters)
-                
-                Expected format:
-                [{"doc_index": 1, "score": 0.95, "motivation": "Upbeat tempo matches energetic mood"}]
-                """,
-                sanitizeInput(mood), documentsText);
+        int motivated = Math.min(motivations, docs.size());
+        if (motivated > 0) {
+            prompt.append("\nAdd \"m\" with a reason of at most 60 characters to the first ")
+                    .append(motivated).append(" items only.");
+        }
+        return prompt.toString();
+    }
+
+    private String documentLine(Document doc, int index) {
+        return index + "|" + extractMetadata(doc, "artist") + "|" + extractMetadata(doc, "title") + "|"
+                + extractMetadata(doc, "genre");
+    }
+
+    private static int estimateTokens(String text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
     }
 
 
     private ChatResponse executeRerankingQuery(String prompt) {
         try {
             log.debug("Executing re-ranking query with prompt length: {} characters", prompt.length());
+            meterRegistry.summary("lyrics.rerank.prompt.size").record(prompt.length());
 
             Prompt aiPrompt = new Prompt(new UserMessage(prompt));
-            ChatResponse response = chatModel.call(aiPrompt);
+            ChatResponse response = llmTimer.record(() -> chatModel.call(aiPrompt));
 
             if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
                 throw new RuntimeException("Invalid response from AI model");
             }
 
+            recordResponseSize(response);
             return response;
 
         } catch (Exception e) {
@@ -132,7 +310,97 @@ public class RerankComponent {
         }
     }
 
-    private List<Map<String, Object>> parseRerankingResponse(ChatResponse response) {
+    /**
+     * Streams the re-ranking response and parses ranking items as they are generated. Generation is
+     * cancelled once {@code limit} distinct documents are ranked, so the call takes about as long as
+     * generating the top of the ranking.
+     */
+    private Ranking streamRerankingQuery(String prompt, List<Document> docs, int limit) {
+        log.debug("Streaming re-ranking query with prompt length: {} characters", prompt.length());
+        meterRegistry.summary("lyrics.rerank.prompt.size").record(prompt.length());
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<Map<String, Object>> ranking = new ArrayList<>();
+        Set<Integer> rankedIndexes = new HashSet<>();
+        StringBuilder text = new StringBuilder();
+        ChatResponse last = null;
+        boolean stoppedEarly = false;
+
+        try (Stream<ChatResponse> responses = chatModel.stream(new Prompt(new UserMessage(prompt))).toStream()) {
+            RankingStreamParser parser = new RankingStreamParser(objectMapper.getFactory());
+            Iterator<ChatResponse> iterator = responses.iterator();
+            while (iterator.hasNext() && !parser.isComplete()) {
+                ChatResponse chunk = iterator.next();
+                last = chunk;
+                String chunkText = chunk.getResult() != null && chunk.getResult().getOutput() != null
+                        ? chunk.getResult().getOutput().getText() : null;
+                if (chunkText == null) {
+                    continue;
+                }
+                text.append(chunkText);
+
+                for (Map<String, Object> item : parser.feed(chunkText)) {
+                    ranking.add(item);
+                    if (item.get(INDEX_KEY) instanceof Number index && isValidDocumentIndex(index.intValue() - 1, docs.size())) {
+                        rankedIndexes.add(index.intValue());
+                    }
+                }
+                if (rankedIndexes.size() >= limit && !parser.isComplete()) {
+                    // Closing the stream cancels the rest of the generation
+                    stoppedEarly = true;
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            meterRegistry.counter("lyrics.rerank.parse.failures").increment();
+            log.error("Failed to parse streamed re-ranking response", e);
+            throw new RuntimeException("Invalid JSON response from AI model", e);
+        } catch (UnsupportedOperationException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            log.error("Failed to execute streaming re-ranking query", e);
+            throw new RuntimeException("AI model query failed", e);
+        } finally {
+            sample.stop(llmTimer);
+        }
+
+        meterRegistry.summary("lyrics.rerank.response.size").record(text.length());
+        if (last != null) {
+            recordUsage(last);
+        }
+        if (stoppedEarly) {
+            meterRegistry.counter("lyrics.rerank.stream.stopped-early").increment();
+            log.debug("Stopped re-ranking generation after {} of {} documents", rankedIndexes.size(), docs.size());
+        }
+
+        try {
+            validateRankingResponse(ranking);
+        } catch (RuntimeException e) {
+            meterRegistry.counter("lyrics.rerank.parse.failures").increment();
+            throw e;
+        }
+        return new Ranking(applyRerankingResults(docs, ranking, !stoppedEarly), !stoppedEarly);
+    }
+
+    private void recordResponseSize(ChatResponse response) {
+        String text = response.getResult().getOutput().getText();
+        meterRegistry.summary("lyrics.rerank.response.size").record(text != null ? text.length() : 0);
+        recordUsage(response);
+    }
+
+    private void recordUsage(ChatResponse response) {
+        Usage usage = response.getMetadata() != null ? response.getMetadata().getUsage() : null;
+        if (usage != null) {
+            if (usage.getPromptTokens() != null) {
+                meterRegistry.summary("lyrics.rerank.tokens", "type", "prompt").record(usage.getPromptTokens());
+            }
+            if (usage.getCompletionTokens() != null) {
+                meterRegistry.summary("lyrics.rerank.tokens", "type", "completion").record(usage.getCompletionTokens());
+            }
+        }
+    }
+
+    List<Map<String, Object>> parseRerankingResponse(ChatResponse response) {
         try {
             String content = response.getResult().getOutput().getText();
             log.debug("Received re-ranking response: {}", content);
@@ -148,8 +416,12 @@ public class RerankComponent {
             return ranking;
 
         } catch (IOException e) {
+            meterRegistry.counter("lyrics.rerank.parse.failures").increment();
             log.error("Failed to parse re-ranking JSON response", e);
             throw new RuntimeException("Invalid JSON response from AI model", e);
+        } catch (RuntimeException e) {
+            meterRegistry.counter("lyrics.rerank.parse.failures").increment();
+            throw e;
         }
     }
 
@@ -171,14 +443,22 @@ public class RerankComponent {
         }
 
         for (Map<String, Object> item : ranking) {
-            if (!item.containsKey("doc_index") || !item.containsKey("motivation")) {
-                throw new RuntimeException("Invalid ranking item structure: missing required fields");
+            if (!item.containsKey(INDEX_KEY)) {
+                throw new RuntimeException("Invalid ranking item structure: missing document index");
             }
         }
     }
 
 
-    private List<Document> applyRerankingResults(List<Document> originalDocs, List<Map<String, Object>> ranking) {
+    List<Document> applyRerankingResults(List<Document> originalDocs, List<Map<String, Object>> ranking) {
+        return applyRerankingResults(originalDocs, ranking, true);
+    }
+
+    /**
+     * @param complete whether the ranking covers the whole response; a partial one drops no documents
+     */
+    private List<Document> applyRerankingResults(List<Document> originalDocs, List<Map<String, Object>> ranking,
+                                                 boolean complete) {
         List<Document> rerankedDocs = new ArrayList<>();
         int processedCount = 0;
 
@@ -190,9 +470,11 @@ public class RerankComponent {
                 if (isValidDocumentIndex(index, originalDocs.size())) {
                     Document doc = originalDocs.get(index);
                     addMotivationMetadata(doc, motivation);
+                    addScoreMetadata(doc, extractScore(item));
                     rerankedDocs.add(doc);
                     processedCount++;
                 } else {
+                    meterRegistry.counter("lyrics.rerank.invalid-doc-index").increment();
                     log.warn("Invalid document index {} for document list of size {}",
                             index + 1, originalDocs.size());
                 }
@@ -201,22 +483,69 @@ public class RerankComponent {
                 log.warn("Failed to process ranking item: {}", item, e);
             }
         }
+
+        // Candidates the model left out of its ranking are not recommended
+        int dropped = originalDocs.size() - rerankedDocs.size();
+        if (complete && dropped > 0) {
+            meterRegistry.counter("lyrics.rerank.dropped-documents").increment(dropped);
+        }
+        return rerankedDocs;
+    }
+
+
+    private List<Document> applyCachedRanking(List<Document> originalDocs, List<RerankCacheComponent.RankedSong> ranking) {
+        Map<String, Document> docsBySongId = new HashMap<>();
+        for (Document doc : originalDocs) {
+            docsBySongId.putIfAbsent(doc.getMetadata().get("songId").toString(), doc);
+        }
+
+        List<Document> rerankedDocs = new ArrayList<>(ranking.size());
+        for (RerankCacheComponent.RankedSong rankedSong : ranking) {
+            Document doc = docsBySongId.get(rankedSong.songId());
+            if (doc != null) {
+                addMotivationMetadata(doc, rankedSong.motivation());
+                addScoreMetadata(doc, rankedSong.score());
+                rerankedDocs.add(doc);
+            }
+        }
         return rerankedDocs;
     }
 
 
+    private List<RerankCacheComponent.RankedSong> toRankedSongs(List<Document> rerankedDocs) {
+        List<RerankCacheComponent.RankedSong> rankedSongs = new ArrayList<>(rerankedDocs.size());
+        for (Document doc : rerankedDocs) {
+            Object songId = doc.getMetadata().get("songId");
+            if (songId == null) {
+                return Collections.emptyList();
+            }
+            rankedSongs.add(new RerankCacheComponent.RankedSong(songId.toString(),
+                    (Double) doc.getMetadata().get("rerankScore"),
+                    doc.getMetadata().get("motivation").toString()));
+        }
+        return rankedSongs;
+    }
+
+
     private int extractDocumentIndex(Map<String, Object> rankingItem) {
-        Object docIndexObj = rankingItem.get("doc_index");
+        Object docIndexObj = rankingItem.get(INDEX_KEY);
         if (docIndexObj instanceof Number number) {
             return number.intValue() - 1; // Convert to zero-based index
         }
-        throw new RuntimeException("Invalid doc_index type: " + docIndexObj.getClass());
+        throw new RuntimeException("Invalid document index type: " + docIndexObj.getClass());
     }
 
 
     private String extractMotivation(Map<String, Object> rankingItem) {
-        Object motivationObj = rankingItem.get("motivation");
-        return motivationObj != null ? motivationObj.toString().trim() : DEFAULT_MOTIVATION;
+        Object motivationObj = rankingItem.get(MOTIVATION_KEY);
+        return motivationObj != null && !motivationObj.toString().isBlank()
+                ? motivationObj.toString().trim() : DEFAULT_MOTIVATION;
+    }
+
+
+    private Double extractScore(Map<String, Object> rankingItem) {
+        Object scoreObj = rankingItem.get(SCORE_KEY);
+        return scoreObj instanceof Number number ? number.doubleValue() : null;
     }
 
 
@@ -230,9 +559,17 @@ public class RerankComponent {
     }
 
 
+    private void addScoreMetadata(Document document, Double score) {
+        if (score != null) {
+            document.getMetadata().put("rerankScore", score);
+        }
+    }
+
+
     private String extractMetadata(Document document, String key) {
         Object value = document.getMetadata().get(key);
-        return value != null ? value.toString().trim() : "Unknown";
+        // Pipes and line breaks would break the song line
+        return value != null ? value.toString().replaceAll("[|\\r\\n]+", " ").trim() : "";
     }
 
     private String sanitizeInput(String input) {
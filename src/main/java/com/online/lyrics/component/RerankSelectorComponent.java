@@ -0,0 +1,80 @@
+package com.online.lyrics.component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Picks the re-ranking strategy per request, based on {@code lyrics.rerank.strategy}:
+ * <ul>
+ *     <li>{@code llm}: always the LLM re-ranker.</li>
+ *     <li>{@code local}: always the in-process re-ranker.</li>
+ *     <li>{@code auto}: the LLM while fewer than {@code lyrics.rerank.max-concurrent-llm} LLM re-rankings
+ *     are in flight, the local re-ranker beyond that or when the LLM call fails.</li>
+ * </ul>
+ * Re-rankings are counted per strategy that served them in {@code lyrics.rerank.served}.
+ */
+@Slf4j
+@Component
+public class RerankSelectorComponent {
+
+    private final RerankComponent llmRerank;
+    private final LocalRerankComponent localRerank;
+    private final String strategy;
+    private final Semaphore llmPermits;
+    private final MeterRegistry meterRegistry;
+
+    public RerankSelectorComponent(RerankComponent llmRerank,
+                                   LocalRerankComponent localRerank,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${lyrics.rerank.strategy:llm}") String strategy,
+                                   @Value("${lyrics.rerank.max-concurrent-llm:8}") int maxConcurrentLlm) {
+        this.llmRerank = llmRerank;
+        this.localRerank = localRerank;
+        this.strategy = strategy.trim().toLowerCase();
+        this.llmPermits = new Semaphore(maxConcurrentLlm);
+        this.meterRegistry = meterRegistry;
+
+        if (!List.of("llm", "local", "auto").contains(this.strategy)) {
+            throw new IllegalArgumentException("Unknown re-rank strategy: " + strategy);
+        }
+    }
+
+    public List<Document> rerank(String mood, List<Document> docs) {
+        return rerank(mood, docs, docs.size());
+    }
+
+    public List<Document> rerank(String mood, List<Document> docs, int limit) {
+        return switch (strategy) {
+            case "local" -> rerankWith(localRerank, mood, docs, limit);
+            case "auto" -> rerankAuto(mood, docs, limit);
+            default -> rerankWith(llmRerank, mood, docs, limit);
+        };
+    }
+
+    private List<Document> rerankAuto(String mood, List<Document> docs, int limit) {
+        if (!llmPermits.tryAcquire()) {
+            log.info("LLM re-ranker saturated, re-ranking locally for mood: '{}'", mood);
+            return rerankWith(localRerank, mood, docs, limit);
+        }
+        try {
+            return rerankWith(llmRerank, mood, docs, limit);
+        } catch (Exception e) {
+            log.warn("LLM re-ranking failed for mood: '{}', re-ranking locally: {}", mood, e.getMessage());
+            return rerankWith(localRerank, mood, docs, limit);
+        } finally {
+            llmPermits.release();
+        }
+    }
+
+    private List<Document> rerankWith(RerankStrategy reranker, String mood, List<Document> docs, int limit) {
+        List<Document> ranked = reranker.rerank(mood, docs, limit);
+        meterRegistry.counter("lyrics.rerank.served", "strategy", reranker.name()).increment();
+        return ranked;
+    }
+}
@@ -0,0 +1,24 @@
+package com.online.lyrics.component;
+
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+/**
+ * Orders candidate documents for a mood. Implementations return the documents most relevant first and
+ * annotate each with {@code motivation} and {@code rerankScore} metadata.
+ */
+public interface RerankStrategy {
+
+    String name();
+
+    List<Document> rerank(String mood, List<Document> docs);
+
+    /**
+     * Re-ranks {@code docs} for a request that uses only the first {@code limit} documents; the returned
+     * list may then rank only the documents needed to fill the limit.
+     */
+    default List<Document> rerank(String mood, List<Document> docs, int limit) {
+        return rerank(mood, docs);
+    }
+}
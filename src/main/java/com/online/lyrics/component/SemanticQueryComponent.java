@@ -1,38 +1,216 @@
 package com.online.lyrics.component;
 
+import com.online.lyrics.component.AdaptiveRetrievalComponent.RetrievalPlan;
+import com.online.lyrics.model.SongFilter;
+import com.online.lyrics.vector.AtlasQueryVectorSearch;
+import com.online.lyrics.vector.QueryVectorSearch;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 @Component
 public class SemanticQueryComponent {
 
     private final VectorStore vectorStore;
+    private final QueryVectorSearch queryVectorSearch;
+    private final QueryEmbeddingComponent queryEmbeddingComponent;
+    private final boolean queryEmbeddingCacheEnabled;
+    private final LyricsSearchComponent lyricsSearchComponent;
+    private final AdaptiveRetrievalComponent adaptiveRetrievalComponent;
+    private final int rrfK;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
     private Logger logger = LoggerFactory.getLogger(SemanticQueryComponent.class);
 
-    public SemanticQueryComponent(VectorStore vectorStore){
+    public SemanticQueryComponent(VectorStore vectorStore,
+                                  AtlasQueryVectorSearch atlasQueryVectorSearch,
+                                  QueryEmbeddingComponent queryEmbeddingComponent,
+                                  LyricsSearchComponent lyricsSearchComponent,
+                                  AdaptiveRetrievalComponent adaptiveRetrievalComponent,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${lyrics.query-embedding-cache.enabled:true}") boolean queryEmbeddingCacheEnabled,
+                                  @Value("${lyrics.hybrid.rrf-k:60}") int rrfK){
         this.vectorStore = vectorStore;
+        // Local stores search their own index, otherwise run $vectorSearch against Atlas directly
+        this.queryVectorSearch = vectorStore instanceof QueryVectorSearch local ? local : atlasQueryVectorSearch;
+        this.queryEmbeddingComponent = queryEmbeddingComponent;
+        this.queryEmbeddingCacheEnabled = queryEmbeddingCacheEnabled;
+        this.lyricsSearchComponent = lyricsSearchComponent;
+        this.adaptiveRetrievalComponent = adaptiveRetrievalComponent;
+        this.rrfK = rrfK;
+        this.meterRegistry = meterRegistry;
     }
 
 
     public List<Document> similaritySearch(String mood, int limit) {
-        String query = buildSemanticQuery(mood);
+        return similaritySearch(mood, limit, SongFilter.NONE);
+    }
+
+    /**
+     * Searches for songs matching the mood. The filter is applied inside the vector search, so the
+     * {@code limit} nearest matching songs are found rather than the nearest songs being filtered afterwards.
+     */
+    public List<Document> similaritySearch(String mood, int limit, SongFilter filter) {
+        String normalizedMood = QueryEmbeddingComponent.normalizeMood(mood);
+        String query = buildSemanticQuery(queryEmbeddingCacheEnabled ? normalizedMood : mood);
 
         logger.info("Building semantic query: "+query);
 
-        SearchRequest searchRequest = SearchRequest.builder()
+        Filter.Expression filterExpression = filter.toExpression();
+
+        float[] queryVector = queryEmbeddingCacheEnabled
+                ? timeStage("embedding", () -> queryEmbeddingComponent.embed(normalizedMood, query))
+                : null;
+        List<Document> vectorResults = vectorSearch(normalizedMood, query, queryVector, filter, filterExpression, limit);
+        return withKeywordResults(normalizedMood, vectorResults, limit, filterExpression);
+    }
+
+    /**
+     * Runs the searches of several moods: all moods are embedded in one batch call and the vector
+     * searches run in parallel. Results are returned in the order of the queries. Without the query
+     * embedding cache, each search embeds its own mood inside the vector store.
+     */
+    public List<List<Document>> similaritySearchAll(List<MoodQuery> queries) {
+        Map<String, String> queriesByMood = new LinkedHashMap<>();
+        for (MoodQuery moodQuery : queries) {
+            String normalizedMood = QueryEmbeddingComponent.normalizeMood(moodQuery.mood());
+            queriesByMood.putIfAbsent(normalizedMood, buildSemanticQuery(normalizedMood));
+        }
+        Map<String, float[]> queryVectors = queryEmbeddingCacheEnabled
+                ? timeStage("embedding", () -> queryEmbeddingComponent.embedAll(queriesByMood))
+                : Map.of();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<Document>>> searches = queries.stream()
+                    .map(moodQuery -> executor.submit(() -> {
+                        String normalizedMood = QueryEmbeddingComponent.normalizeMood(moodQuery.mood());
+                        String query = queryEmbeddingCacheEnabled
+                                ? queriesByMood.get(normalizedMood) : buildSemanticQuery(moodQuery.mood());
+                        Filter.Expression filterExpression = moodQuery.filter().toExpression();
+                        List<Document> vectorResults = vectorSearch(normalizedMood, query,
+                                queryVectors.get(normalizedMood), moodQuery.filter(), filterExpression, moodQuery.limit());
+                        return withKeywordResults(normalizedMood, vectorResults, moodQuery.limit(), filterExpression);
+                    }))
+                    .toList();
+
+            List<List<Document>> results = new ArrayList<>(searches.size());
+            for (Future<List<Document>> search : searches) {
+                results.add(search.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted during batch similarity search", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Batch similarity search failed", e.getCause());
+        }
+    }
+
+    public record MoodQuery(String mood, int limit, SongFilter filter) {
+
+        public MoodQuery(String mood, int limit) {
+            this(mood, limit, SongFilter.NONE);
+        }
+    }
+
+    /**
+     * @param queryVector embedding of {@code query}, or {@code null} to let the vector store embed it
+     */
+    private List<Document> vectorSearch(String normalizedMood, String query, float[] queryVector, SongFilter filter,
+                                        Filter.Expression filterExpression, int limit) {
+        return adaptiveRetrievalComponent.retrieve(normalizedMood, filter, limit, plan -> timeStage("vector-search",
+                () -> queryVector == null
+                        // Embedding and search are a single call to the vector store
+                        ? vectorStore.similaritySearch(buildSearchRequest(query, plan, filterExpression))
+                        : queryVectorSearch.similaritySearch(queryVector, buildSearchRequest(query, plan, filterExpression))));
+    }
+
+    private SearchRequest buildSearchRequest(String query, RetrievalPlan plan, Filter.Expression filterExpression) {
+        SearchRequest.Builder builder = SearchRequest.builder()
                 .query(query)
-                .topK(limit*2)
-                .similarityThreshold(0.6)
-                .build();
+                .topK(plan.topK())
+                .similarityThreshold(plan.similarityThreshold());
+        if (filterExpression != null) {
+            builder.filterExpression(filterExpression);
+        }
+        return builder.build();
+    }
+
+    private List<Document> withKeywordResults(String normalizedMood, List<Document> vectorResults, int limit,
+                                              Filter.Expression filterExpression) {
+        if (!lyricsSearchComponent.isEnabled()) {
+            return vectorResults;
+        }
+        List<Document> keywordResults = timeStage("keyword-search",
+                () -> lyricsSearchComponent.search(normalizedMood, limit * 2, filterExpression));
+        // Keep as many candidates as adaptive retrieval kept, whether or not the keyword search found anything
+        return fuse(vectorResults, keywordResults, Math.max(limit * 2, vectorResults.size()));
+    }
+
+    /**
+     * Reciprocal rank fusion: each song scores {@code sum 1 / (rrfK + rank)} over the result lists it
+     * appears in. Songs found by both searches keep the vector search document.
+     */
+    private List<Document> fuse(List<Document> vectorResults, List<Document> keywordResults, int topK) {
+        if (keywordResults.isEmpty()) {
+            return vectorResults;
+        }
 
-        return vectorStore.similaritySearch(searchRequest);
+        Map<String, Document> documents = new LinkedHashMap<>();
+        Map<String, Double> scores = new HashMap<>();
+        for (List<Document> results : List.of(vectorResults, keywordResults)) {
+            for (int rank = 0; rank < results.size(); rank++) {
+                Document document = results.get(rank);
+                String key = songKey(document);
+                documents.putIfAbsent(key, document);
+                scores.merge(key, 1.0 / (rrfK + rank + 1), Double::sum);
+            }
+        }
+
+        List<Document> fused = documents.entrySet().stream()
+                .sorted(Map.Entry.<String, Document>comparingByKey(
+                        Comparator.comparing(scores::get, Comparator.reverseOrder())))
+                .limit(topK)
+                .map(Map.Entry::getValue)
+                .toList();
+        fused.forEach(document -> document.getMetadata().put("rrfScore", scores.get(songKey(document))));
+
+        logger.debug("Fused {} vector and {} keyword results into {} candidates",
+                vectorResults.size(), keywordResults.size(), fused.size());
+        return fused;
+    }
+
+    private <T> T timeStage(String stage, Supplier<T> work) {
+        return stageTimers.computeIfAbsent(stage, name -> Timer.builder("lyrics.search.stage")
+                        .tag("stage", name)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(work);
+    }
 
+    private String songKey(Document document) {
+        Object songId = document.getMetadata().get("songId");
+        return songId != null ? songId.toString() : document.getId();
     }
 
     private String buildSemanticQuery(String mood) {
@@ -42,4 +220,4 @@ public class SemanticQueryComponent {
                 mood
         );
     }
-}
\ No newline at end of file
+}
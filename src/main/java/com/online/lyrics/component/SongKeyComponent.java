@@ -0,0 +1,122 @@
+package com.online.lyrics.component;
+
+import com.online.lyrics.model.Song;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Computes the song key and content hash that incremental ingestion matches songs by, and prepares the
+ * songs collection for it on startup: the song key index is created, and songs stored before keys existed
+ * get their key and hash, so re-importing them is recognized as unchanged instead of duplicating them.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SongKeyComponent {
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Hash of the normalized artist and title, identifying the same song across imports.
+     */
+    public String songKey(String artist, String title) {
+        return hash(normalizeForKey(artist), normalizeForKey(title));
+    }
+
+    /**
+     * Hash of artist, title and lyrics; a different value means the song must be re-embedded.
+     */
+    public String contentHash(String artist, String title, String lyrics) {
+        return hash(artist, title, lyrics);
+    }
+
+    /**
+     * Runs before the application accepts requests or resumes ingestion jobs.
+     */
+    @PostConstruct
+    void prepareSongsCollection() {
+        // Auto index creation is off, so the @Document annotations alone create no index
+        mongoTemplate.indexOps(Song.class).ensureIndex(new Index().on("songKey", Sort.Direction.ASC));
+        backfillSongKeys();
+    }
+
+    private void backfillSongKeys() {
+        long start = System.currentTimeMillis();
+        Query missingKey = Query.query(Criteria.where("songKey").is(null));
+        missingKey.fields().include("title", "artist", "lyrics");
+
+        int updated = 0;
+        BulkOperations batch = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Song.class);
+        int batched = 0;
+        try (Stream<Song> songs = mongoTemplate.stream(missingKey, Song.class)) {
+            for (Song song : (Iterable<Song>) songs::iterator) {
+                String artist = sanitizeText(song.getArtist());
+                String title = sanitizeText(song.getTitle());
+                batch.updateOne(Query.query(Criteria.where("_id").is(song.getId())),
+                        Update.update("songKey", songKey(artist, title))
+                                .set("contentHash", contentHash(artist, title, sanitizeText(song.getLyrics()))));
+                if (++batched == BACKFILL_BATCH_SIZE) {
+                    batch.execute();
+                    updated += batched;
+                    batch = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Song.class);
+                    batched = 0;
+                }
+            }
+        }
+        if (batched > 0) {
+            batch.execute();
+            updated += batched;
+        }
+
+        if (updated > 0) {
+            log.info("Backfilled song keys and content hashes of {} songs in {} ms",
+                    updated, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Computes a stable SHA-256 hex digest over the given fields.
+     *
+     * @param fields the fields to hash, in order
+     * @return the hex digest
+     */
+    private String hash(String... fields) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String field : fields) {
+                digest.update(field.getBytes(StandardCharsets.UTF_8));
+                // Separator so that ("ab", "c") and ("a", "bc") differ
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private String normalizeForKey(String text) {
+        return text.replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private String sanitizeText(String text) {
+        return text != null ? text.trim() : "";
+    }
+}
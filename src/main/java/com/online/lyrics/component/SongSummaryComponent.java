@@ -0,0 +1,85 @@
+package com.online.lyrics.component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.online.lyrics.event.SongsIngestedEvent;
+import com.online.lyrics.model.Song;
+import com.online.lyrics.model.SongSummary;
+import com.online.lyrics.repository.SongRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-through cache of {@link SongSummary} records. Misses are loaded with one batched,
+ * lyrics-free query regardless of how many songs are requested.
+ */
+@Slf4j
+@Component
+public class SongSummaryComponent {
+
+    private final SongRepository songRepository;
+    private final Cache<String, SongSummary> cache;
+
+    public SongSummaryComponent(SongRepository songRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${lyrics.song-summary-cache.maximum-size:50000}") long maximumSize,
+                                @Value("${lyrics.song-summary-cache.expire-after-write:PT24H}") Duration expireAfterWrite) {
+        this.songRepository = songRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "lyrics.song-summary");
+    }
+
+    /**
+     * Returns the summaries of the given songs keyed by id; unknown ids are absent from the result.
+     */
+    public Map<String, SongSummary> findAllById(Collection<String> songIds) {
+        if (songIds.isEmpty()) {
+            return Map.of();
+        }
+        return cache.getAll(songIds, this::loadSummaries);
+    }
+
+    @EventListener
+    public void onSongsIngested(SongsIngestedEvent event) {
+        cache.invalidateAll(event.songIds());
+    }
+
+    private Map<String, SongSummary> loadSummaries(Set<? extends String> songIds) {
+        Map<String, SongSummary> summaries = new HashMap<>();
+        for (Song song : songRepository.findByIdIn(Set.copyOf(songIds))) {
+            summaries.put(song.getId(), toSummary(song));
+        }
+        log.debug("Loaded {} of {} song summaries from the database", summaries.size(), songIds.size());
+        return summaries;
+    }
+
+    private SongSummary toSummary(Song song) {
+        return new SongSummary(
+                song.getId(),
+                sanitizeText(song.getTitle()),
+                sanitizeText(song.getArtist()),
+                sanitizeText(song.getAlbum()),
+                sanitizeText(song.getGenre()),
+                song.getReleaseYear()
+        );
+    }
+
+    private String sanitizeText(String text) {
+        return StringUtils.hasText(text) ? text.trim() : "";
+    }
+}
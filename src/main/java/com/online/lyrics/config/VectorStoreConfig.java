@@ -0,0 +1,59 @@
+package com.online.lyrics.config;
+
+import com.online.lyrics.vector.HnswIndex;
+import com.online.lyrics.vector.HnswVectorStore;
+import com.online.lyrics.vector.LyricsVectorCollection;
+import com.online.lyrics.vector.QuantizedVector;
+import com.online.lyrics.vector.SegmentVectorStore;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Selects the vector store used for recommendations.
+ * <p>
+ * {@code lyrics.vector-store.type=atlas} (default) keeps the auto-configured MongoDB Atlas store,
+ * {@code hnsw} serves searches from an in-process HNSW index built from the vector collection and
+ * {@code segment} scans a memory-mapped segment file written from the vector collection.
+ */
+@Configuration
+public class VectorStoreConfig {
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "lyrics.vector-store", name = "type", havingValue = "hnsw")
+    public HnswVectorStore hnswVectorStore(EmbeddingModel embeddingModel,
+                                           LyricsVectorCollection vectorCollection,
+                                           @Value("${lyrics.vector-store.hnsw.max-connections:16}") int maxConnections,
+                                           @Value("${lyrics.vector-store.hnsw.ef-construction:200}") int efConstruction,
+                                           @Value("${lyrics.vector-store.hnsw.ef-search:100}") int efSearch,
+                                           @Value("${lyrics.vector-store.hnsw.encoding:FLOAT32}") QuantizedVector.Encoding encoding,
+                                           @Value("${lyrics.vector-store.hnsw.oversampling:4}") int oversampling) {
+        HnswVectorStore store = new HnswVectorStore(embeddingModel, vectorCollection,
+                new HnswIndex(maxConnections, efConstruction, efSearch, encoding), oversampling);
+        store.load();
+        return store;
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "lyrics.vector-store", name = "type", havingValue = "segment")
+    public SegmentVectorStore segmentVectorStore(EmbeddingModel embeddingModel,
+                                                 LyricsVectorCollection vectorCollection,
+                                                 @Value("${lyrics.vector-store.segment.path:data/lyrics-vectors.seg}") String path,
+                                                 @Value("${lyrics.vector-store.segment.encoding:INT8}") QuantizedVector.Encoding encoding,
+                                                 @Value("${lyrics.vector-store.segment.oversampling:4}") int oversampling,
+                                                 @Value("${lyrics.vector-store.segment.max-delta:5000}") int maxDelta,
+                                                 @Value("${lyrics.vector-store.segment.refresh-interval:PT1M}") Duration refreshInterval) {
+        SegmentVectorStore store = new SegmentVectorStore(embeddingModel, vectorCollection,
+                Path.of(path), encoding, oversampling, maxDelta, refreshInterval);
+        store.load();
+        return store;
+    }
+}
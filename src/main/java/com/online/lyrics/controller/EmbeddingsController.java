@@ -2,10 +2,14 @@ package com.online.lyrics.controller;
 
 import com.online.lyrics.model.dto.BulkSongRequest;
 import com.online.lyrics.model.dto.BulkSongResponse;
+import com.online.lyrics.model.dto.IngestionJobResponse;
+import com.online.lyrics.service.IngestionJobService;
 import com.online.lyrics.service.SongEmbeddingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -18,11 +22,26 @@ public class EmbeddingsController {
     @Autowired
     SongEmbeddingService songEmbeddingService;
 
+    @Autowired
+    IngestionJobService ingestionJobService;
+
 
     @PostMapping("/bulk")
     ResponseEntity<BulkSongResponse> createEmbeddingFromBulkSong(@RequestBody BulkSongRequest request) {
         return new ResponseEntity<>(songEmbeddingService.createEmbeddingFromBulkSong(request), HttpStatus.CREATED);
     }
+
+    @PostMapping(value = "/bulk", params = "async=true")
+    ResponseEntity<IngestionJobResponse> submitBulkSongJob(@RequestBody BulkSongRequest request) {
+        return new ResponseEntity<>(ingestionJobService.submit(request), HttpStatus.ACCEPTED);
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    ResponseEntity<IngestionJobResponse> getBulkSongJob(@PathVariable String jobId) {
+        return ingestionJobService.findJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
 }
 
 
@@ -1,18 +1,32 @@
 package com.online.lyrics.controller;
 
+import com.online.lyrics.model.RecommendationResult;
+import com.online.lyrics.model.SongFilter;
+import com.online.lyrics.model.dto.BatchRecommendationResponse;
 import com.online.lyrics.model.dto.MusicRequest;
 import com.online.lyrics.model.dto.SongRecommendationResponse;
+import com.online.lyrics.service.RecommendationListener;
 import com.online.lyrics.service.RecommendationService;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @RestController
 @RequestMapping("/api/songs/v1/recommendations")
@@ -22,14 +36,122 @@ public class RecommendationController {
     RecommendationService recommendationService;
     Logger logger = LoggerFactory.getLogger(RecommendationController.class);
 
+    static final String RERANK_STATUS_HEADER = "X-Rerank-Status";
+
+    @Value("${lyrics.recommendations.stream-timeout:PT2M}")
+    Duration streamTimeout;
+
+    @Value("${lyrics.recommendations.max-batch-size:50}")
+    int maxBatchSize;
+
+    private final ExecutorService streamExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
     @PostMapping
     public ResponseEntity<List<SongRecommendationResponse>> recommendSongs(
             @RequestBody MusicRequest request) {
 
-        List<SongRecommendationResponse> recommendations = recommendationService.recommendSongs(
+        RecommendationResult result = recommendationService.recommendSongs(
                 request.mood(),
-                request.limit() != null ? request.limit() : 10
+                limit(request),
+                request.filter(),
+                latencyBudget(request),
+                RecommendationListener.NONE
         );
-        return ResponseEntity.ok(recommendations);
+        return ResponseEntity.ok()
+                .header(RERANK_STATUS_HEADER, result.rerankStatus().name().toLowerCase())
+                .body(result.recommendations());
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchRecommendationResponse>> recommendSongsBatch(
+            @RequestBody List<MusicRequest> requests) {
+
+        if (requests == null || requests.isEmpty() || requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("A batch must contain between 1 and " + maxBatchSize + " requests");
+        }
+        requests.forEach(this::limit);
+
+        List<RecommendationResult> results = recommendationService.recommendSongsBatch(requests);
+        List<BatchRecommendationResponse> responses = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            RecommendationResult result = results.get(i);
+            responses.add(new BatchRecommendationResponse(requests.get(i).mood(), result.recommendations(),
+                    result.rerankStatus().name().toLowerCase()));
+        }
+        return ResponseEntity.ok(responses);
+    }
+
+    /**
+     * Streams recommendations as server-sent events: a {@code candidates} event with the vector-similarity
+     * order as soon as the semantic search returns, then a {@code reranked} event with the final list
+     * ({@code fallback} if re-ranking failed or ran out of latency budget, {@code empty} with an empty list
+     * if no song matched).
+     */
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamRecommendations(@RequestBody MusicRequest request) {
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        int limit = limit(request);
+        SongFilter filter = request.filter();
+
+        streamExecutor.execute(() -> {
+            try {
+                recommendationService.recommendSongs(request.mood(), limit, filter, latencyBudget(request),
+                        eventListener(emitter));
+                emitter.complete();
+            } catch (Exception e) {
+                logger.error("Streaming recommendations failed for mood: '{}'", request.mood(), e);
+                send(emitter, "error", Map.of("error", "Recommendation generation failed"));
+                emitter.complete();
+            }
+        });
+        return emitter;
+    }
+
+    private RecommendationListener eventListener(SseEmitter emitter) {
+        return new RecommendationListener() {
+            @Override
+            public void onCandidates(List<SongRecommendationResponse> candidates) {
+                send(emitter, "candidates", candidates);
+            }
+
+            @Override
+            public void onReranked(RecommendationResult result) {
+                send(emitter, resultEvent(result), result.recommendations());
+            }
+        };
+    }
+
+    private static String resultEvent(RecommendationResult result) {
+        return switch (result.rerankStatus()) {
+            case RERANKED -> "reranked";
+            case SKIPPED -> "empty";
+            case TIMEOUT, FAILED -> "fallback";
+        };
+    }
+
+    private int limit(MusicRequest request) {
+        int limit = request.limit() != null ? request.limit() : RecommendationService.DEFAULT_LIMIT;
+        if (limit < 1 || limit > RecommendationService.MAX_LIMIT) {
+            throw new IllegalArgumentException("The limit must be between 1 and " + RecommendationService.MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    private Duration latencyBudget(MusicRequest request) {
+        return request.latencyBudgetMs() != null ? Duration.ofMillis(request.latencyBudgetMs()) : null;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        streamExecutor.shutdownNow();
+    }
+
+    private void send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // The client went away; the remaining work still finishes and fills the caches
+            logger.debug("Could not send '{}' event: {}", event, e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
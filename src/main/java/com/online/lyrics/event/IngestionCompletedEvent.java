@@ -0,0 +1,8 @@
+package com.online.lyrics.event;
+
+/**
+ * Published once an ingestion run has ended, also when it failed part-way, if it embedded any songs.
+ * Caches that are cheaper to drop once than per {@link SongsIngestedEvent} chunk listen to this one.
+ */
+public record IngestionCompletedEvent(int embeddedSongs) {
+}
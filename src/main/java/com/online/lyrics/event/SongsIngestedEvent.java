@@ -0,0 +1,9 @@
+package com.online.lyrics.event;
+
+import java.util.List;
+
+/**
+ * Published after songs have been saved and embedded, so caches derived from the catalog can be invalidated.
+ */
+public record SongsIngestedEvent(List<String> songIds) {
+}
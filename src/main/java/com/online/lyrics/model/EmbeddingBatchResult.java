@@ -0,0 +1,36 @@
+package com.online.lyrics.model;
+
+/**
+ * Outcome counts of embedding one or more batches of documents.
+ * Skipped documents were unchanged since a previous ingestion and were not embedded again.
+ */
+public record EmbeddingBatchResult(int succeededBatches, int failedBatches, int embeddedDocuments, int failedDocuments,
+                                   int skippedDocuments) {
+
+    public static final EmbeddingBatchResult EMPTY = new EmbeddingBatchResult(0, 0, 0, 0, 0);
+
+    public static EmbeddingBatchResult succeeded(int documents) {
+        return new EmbeddingBatchResult(1, 0, documents, 0, 0);
+    }
+
+    public static EmbeddingBatchResult failed(int documents) {
+        return new EmbeddingBatchResult(0, 1, 0, documents, 0);
+    }
+
+    public static EmbeddingBatchResult skipped(int documents) {
+        return new EmbeddingBatchResult(0, 0, 0, 0, documents);
+    }
+
+    public int processedDocuments() {
+        return embeddedDocuments + failedDocuments + skippedDocuments;
+    }
+
+    public EmbeddingBatchResult merge(EmbeddingBatchResult other) {
+        return new EmbeddingBatchResult(
+                succeededBatches + other.succeededBatches,
+                failedBatches + other.failedBatches,
+                embeddedDocuments + other.embeddedDocuments,
+                failedDocuments + other.failedDocuments,
+                skippedDocuments + other.skippedDocuments);
+    }
+}
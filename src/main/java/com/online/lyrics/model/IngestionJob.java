@@ -0,0 +1,50 @@
+package com.online.lyrics.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Document(collection = "ingestion_jobs")
+public class IngestionJob {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    @Id
+    public String id;
+    public String fileName;
+    public Status status;
+    public long totalRows;
+    public long rowsParsed;
+    public long rowsSaved;
+    public long rowsEmbedded;
+    public long rowsFailed;
+    public long rowsUnchanged;
+    // Rows before this position are fully processed; a resumed job skips them
+    public long checkpointRows;
+    public long checkpointRowsEmbedded;
+    public long checkpointRowsFailed;
+    public long checkpointRowsUnchanged;
+    public Instant createdAt;
+    public Instant runStartedAt;
+    public long runStartRows;
+    public Instant updatedAt;
+    public Instant finishedAt;
+    public String error;
+    // Node running the job; its lease lapses when heartbeatAt is older than the lease timeout
+    public String owner;
+    public Instant heartbeatAt;
+
+    public IngestionJob(String fileName) {
+        this.fileName = fileName;
+        this.status = Status.QUEUED;
+        this.createdAt = Instant.now();
+        this.updatedAt = this.createdAt;
+    }
+}
@@ -0,0 +1,26 @@
+package com.online.lyrics.model;
+
+import com.online.lyrics.model.dto.SongRecommendationResponse;
+
+import java.util.List;
+
+/**
+ * Recommendations together with how they were ordered.
+ */
+public record RecommendationResult(List<SongRecommendationResponse> recommendations, RerankStatus rerankStatus) {
+
+    public enum RerankStatus {
+        /** Ordered by the re-ranker. */
+        RERANKED,
+        /** The re-ranker did not finish within the latency budget; vector-similarity order. */
+        TIMEOUT,
+        /** The re-ranker failed; vector-similarity order. */
+        FAILED,
+        /** There were no candidates to re-rank. */
+        SKIPPED
+    }
+
+    public boolean reranked() {
+        return rerankStatus == RerankStatus.RERANKED;
+    }
+}
@@ -24,6 +24,10 @@ public class Song {
     public String description;
     public List<String> tags;
     public Integer releaseYear;
+    // Hash of the normalized artist and title, identifying the same song across imports; indexed by SongKeyComponent
+    public String songKey;
+    // Hash of artist, title and lyrics; a different value means the song must be re-embedded
+    public String contentHash;
 
     public Song(String title, String artist, String description) {
         this.title = title;
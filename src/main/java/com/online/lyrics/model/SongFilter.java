@@ -0,0 +1,64 @@
+package com.online.lyrics.model;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Optional restrictions on the recommended songs, matched against the {@code genre}, {@code artist} and
+ * {@code releaseYear} metadata of the vector store documents. Unset fields do not restrict.
+ * <p>
+ * Genre and artist are trimmed but otherwise must match the catalogue spelling exactly, including case
+ * ({@code "Rock"} does not match {@code "rock"}): Atlas {@code $vectorSearch} filters compare strings
+ * case-sensitively, and the in-process stores match the same way so that both give the same results.
+ * Matching regardless of case would need lower-cased copies of these fields in the metadata of every
+ * stored vector. The year range is inclusive on both ends.
+ */
+public record SongFilter(String genre, String artist, Integer yearFrom, Integer yearTo) {
+
+    public static final SongFilter NONE = new SongFilter(null, null, null, null);
+
+    public SongFilter {
+        genre = StringUtils.hasText(genre) ? genre.trim() : null;
+        artist = StringUtils.hasText(artist) ? artist.trim() : null;
+        if (yearFrom != null && yearTo != null && yearFrom > yearTo) {
+            throw new IllegalArgumentException("yearFrom " + yearFrom + " is after yearTo " + yearTo);
+        }
+    }
+
+    public boolean isEmpty() {
+        return genre == null && artist == null && yearFrom == null && yearTo == null;
+    }
+
+    /**
+     * The filter as a vector store filter expression, or {@code null} if it does not restrict anything.
+     */
+    public Filter.Expression toExpression() {
+        FilterExpressionBuilder b = new FilterExpressionBuilder();
+        List<FilterExpressionBuilder.Op> conditions = new ArrayList<>(4);
+        if (genre != null) {
+            conditions.add(b.eq("genre", genre));
+        }
+        if (artist != null) {
+            conditions.add(b.eq("artist", artist));
+        }
+        if (yearFrom != null) {
+            conditions.add(b.gte("releaseYear", yearFrom));
+        }
+        if (yearTo != null) {
+            conditions.add(b.lte("releaseYear", yearTo));
+        }
+        if (conditions.isEmpty()) {
+            return null;
+        }
+
+        FilterExpressionBuilder.Op combined = conditions.get(0);
+        for (int i = 1; i < conditions.size(); i++) {
+            combined = b.and(combined, conditions.get(i));
+        }
+        return combined.build();
+    }
+}
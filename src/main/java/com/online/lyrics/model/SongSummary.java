@@ -0,0 +1,7 @@
+package com.online.lyrics.model;
+
+/**
+ * Sanitized, lyrics-free view of a {@link Song} holding only the fields used in recommendation responses.
+ */
+public record SongSummary(String songId, String title, String artist, String album, String genre, Integer releaseYear) {
+}
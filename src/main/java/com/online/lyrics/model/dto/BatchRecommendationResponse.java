@@ -0,0 +1,6 @@
+package com.online.lyrics.model.dto;
+
+import java.util.List;
+
+public record BatchRecommendationResponse(String mood, List<SongRecommendationResponse> recommendations, String rerankStatus) {
+}
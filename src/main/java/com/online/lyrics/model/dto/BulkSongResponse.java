@@ -1,4 +1,9 @@
 package com.online.lyrics.model.dto;
 
-public record BulkSongResponse(Integer numberOfSongs) {
+public record BulkSongResponse(Integer numberOfSongs, Integer unchangedSongs, Integer failedSongs,
+                               Integer succeededBatches, Integer failedBatches) {
+
+    public BulkSongResponse(Integer numberOfSongs) {
+        this(numberOfSongs, 0, 0, 0, 0);
+    }
 }
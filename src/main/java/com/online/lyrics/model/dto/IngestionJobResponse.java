@@ -0,0 +1,6 @@
+package com.online.lyrics.model.dto;
+
+public record IngestionJobResponse(String jobId, String fileName, String status, Long totalRows, Long rowsParsed,
+                                   Long rowsSaved, Long rowsEmbedded, Long rowsFailed, Long rowsUnchanged, Double rowsPerSecond,
+                                   Long etaSeconds, String error) {
+}
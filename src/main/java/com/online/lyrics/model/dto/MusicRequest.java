@@ -1,3 +1,19 @@
 package com.online.lyrics.model.dto;
 
-public record MusicRequest (String mood, Integer limit){}
\ No newline at end of file
+import com.online.lyrics.model.SongFilter;
+
+/**
+ * @param latencyBudgetMs how long to wait for re-ranking before answering in vector-similarity order;
+ *                        defaults to {@code lyrics.rerank.latency-budget}
+ * @param genre           only recommend songs of this genre; case-sensitive
+ * @param artist          only recommend songs of this artist; case-sensitive
+ * @param yearFrom        only recommend songs released in or after this year
+ * @param yearTo          only recommend songs released in or before this year
+ */
+public record MusicRequest (String mood, Integer limit, Long latencyBudgetMs,
+                            String genre, String artist, Integer yearFrom, Integer yearTo){
+
+    public SongFilter filter() {
+        return new SongFilter(genre, artist, yearFrom, yearTo);
+    }
+}
@@ -0,0 +1,14 @@
+package com.online.lyrics.repository;
+
+import com.online.lyrics.model.IngestionJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface IngestionJobRepository extends MongoRepository<IngestionJob, String> {
+
+    List<IngestionJob> findByStatusIn(Collection<IngestionJob.Status> statuses);
+}
@@ -2,8 +2,18 @@ package com.online.lyrics.repository;
 
 import com.online.lyrics.model.Song;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface SongRepository extends MongoRepository<Song, String> {
-}
\ No newline at end of file
+
+    @Query(fields = "{ 'lyrics': 0 }")
+    List<Song> findByIdIn(Collection<String> ids);
+
+    @Query(fields = "{ 'lyrics': 0 }")
+    List<Song> findBySongKeyIn(Collection<String> songKeys);
+}
@@ -0,0 +1,325 @@
+package com.online.lyrics.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory BM25 inverted index. Postings are kept as parallel primitive arrays (document number,
+ * term frequency) per term, so the index costs a few bytes per token occurrence and no boxing.
+ * <p>
+ * Documents are identified externally by id and can be re-added at any time: the previous version
+ * is tombstoned and skipped at query time. Once tombstones outnumber a fraction of the live documents
+ * the index is compacted, so repeated re-ingestion does not grow it. Title and artist terms count
+ * {@code fieldBoost} times as often as lyric terms.
+ */
+public class Bm25Index {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "from", "i", "im", "in", "is", "it",
+            "its", "me", "my", "of", "on", "or", "so", "that", "the", "this", "to", "was", "we", "with", "you",
+            "your", "oh", "yeah", "song", "songs");
+    // Tombstones tolerated, relative to the live documents (and at least the minimum), before the index is compacted
+    private static final double COMPACTION_RATIO = 0.5;
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 1024;
+
+    private final int fieldBoost;
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<Postings> postings = new ArrayList<>();
+    private final Map<String, Integer> docNumbers = new HashMap<>();
+    private final List<String> docIds = new ArrayList<>();
+    private final List<int[]> docTerms = new ArrayList<>();
+    private int[] docLengths = new int[1024];
+    private final BitSet deleted = new BitSet();
+    private long totalLength;
+    private int liveDocs;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public Bm25Index(int fieldBoost) {
+        this.fieldBoost = fieldBoost;
+    }
+
+    public record Match(String id, float score) {
+    }
+
+    /**
+     * Adds a document, replacing any previous version with the same id.
+     */
+    public void add(String id, String title, String artist, String lyrics) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        countTerms(title, fieldBoost, frequencies);
+        countTerms(artist, fieldBoost, frequencies);
+        countTerms(lyrics, 1, frequencies);
+        int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+
+            int doc = docIds.size();
+            docIds.add(id);
+            docNumbers.put(id, doc);
+            if (doc == docLengths.length) {
+                docLengths = Arrays.copyOf(docLengths, doc * 2);
+            }
+            docLengths[doc] = length;
+            totalLength += length;
+            liveDocs++;
+
+            int[] terms = new int[frequencies.size()];
+            int t = 0;
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                Integer termId = termIds.get(entry.getKey());
+                if (termId == null) {
+                    termId = postings.size();
+                    termIds.put(entry.getKey(), termId);
+                    postings.add(new Postings());
+                }
+                postings.get(termId).add(doc, entry.getValue());
+                terms[t++] = termId;
+            }
+            docTerms.add(terms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Documents in the index, live and tombstoned.
+     */
+    int documentCount() {
+        lock.readLock().lock();
+        try {
+            return docIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Match> search(String query, int k) {
+        Set<String> terms = new HashSet<>(tokenize(query));
+        if (terms.isEmpty() || k <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (liveDocs == 0) {
+                return List.of();
+            }
+            float averageLength = (float) totalLength / liveDocs;
+            float[] scores = new float[docIds.size()];
+            boolean matched = false;
+
+            for (String term : terms) {
+                Integer termId = termIds.get(term);
+                if (termId == null) {
+                    continue;
+                }
+                Postings termPostings = postings.get(termId);
+                int documentFrequency = termPostings.live;
+                if (documentFrequency == 0) {
+                    continue;
+                }
+                float idf = (float) Math.log(1 + (liveDocs - documentFrequency + 0.5) / (documentFrequency + 0.5));
+
+                for (int i = 0; i < termPostings.size; i++) {
+                    int doc = termPostings.docs[i];
+                    if (deleted.get(doc)) {
+                        continue;
+                    }
+                    int frequency = termPostings.frequencies[i];
+                    float norm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+                    scores[doc] += idf * frequency * (K1 + 1) / (frequency + norm);
+                    matched = true;
+                }
+            }
+            if (!matched) {
+                return List.of();
+            }
+
+            PriorityQueue<Match> best = new PriorityQueue<>(Comparator.comparingDouble(Match::score));
+            for (int doc = 0; doc < scores.length; doc++) {
+                float score = scores[doc];
+                if (score <= 0) {
+                    continue;
+                }
+                if (best.size() < k) {
+                    best.add(new Match(docIds.get(doc), score));
+                } else if (score > best.peek().score()) {
+                    best.poll();
+                    best.add(new Match(docIds.get(doc), score));
+                }
+            }
+
+            List<Match> matches = new ArrayList<>(best);
+            matches.sort(Comparator.comparingDouble(Match::score).reversed());
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (token.length() > 1 && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static void countTerms(String text, int weight, Map<String, Integer> frequencies) {
+        for (String token : tokenize(text)) {
+            frequencies.merge(token, weight, Integer::sum);
+        }
+    }
+
+    private void removeLocked(String id) {
+        Integer previous = docNumbers.remove(id);
+        if (previous == null) {
+            return;
+        }
+        deleted.set(previous);
+        totalLength -= docLengths[previous];
+        liveDocs--;
+        // Document frequencies only count live documents
+        for (int termId : docTerms.get(previous)) {
+            postings.get(termId).live--;
+        }
+        docTerms.set(previous, null);
+        int tombstones = docIds.size() - liveDocs;
+        if (tombstones >= MIN_TOMBSTONES_TO_COMPACT && tombstones > liveDocs * COMPACTION_RATIO) {
+            compact();
+        }
+    }
+
+    /**
+     * Renumbers the live documents densely and drops the postings of tombstoned documents and of terms
+     * no live document uses any more, so per-query score arrays only cover (mostly) live documents.
+     */
+    private void compact() {
+        int documents = docIds.size();
+        int[] docRemap = new int[documents];
+        int next = 0;
+        for (int doc = 0; doc < documents; doc++) {
+            if (deleted.get(doc)) {
+                docRemap[doc] = -1;
+                continue;
+            }
+            docRemap[doc] = next;
+            String id = docIds.get(doc);
+            docIds.set(next, id);
+            docTerms.set(next, docTerms.get(doc));
+            docLengths[next] = docLengths[doc];
+            docNumbers.put(id, next);
+            next++;
+        }
+        docIds.subList(next, documents).clear();
+        docTerms.subList(next, documents).clear();
+        if (docLengths.length > 1024 && docLengths.length > next * 2) {
+            docLengths = Arrays.copyOf(docLengths, Math.max(1024, next * 2));
+        }
+        deleted.clear();
+
+        int terms = postings.size();
+        int[] termRemap = new int[terms];
+        int nextTerm = 0;
+        for (int termId = 0; termId < terms; termId++) {
+            Postings termPostings = postings.get(termId);
+            if (termPostings.live == 0) {
+                termRemap[termId] = -1;
+                continue;
+            }
+            termPostings.retain(docRemap);
+            termRemap[termId] = nextTerm;
+            postings.set(nextTerm++, termPostings);
+        }
+        postings.subList(nextTerm, terms).clear();
+        termIds.values().removeIf(termId -> termRemap[termId] < 0);
+        termIds.replaceAll((term, termId) -> termRemap[termId]);
+        for (int[] docTermIds : docTerms) {
+            for (int i = 0; i < docTermIds.length; i++) {
+                docTermIds[i] = termRemap[docTermIds[i]];
+            }
+        }
+    }
+
+    /**
+     * Postings of one term; {@code live} counts the postings of documents that were not replaced or removed.
+     */
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+        private int live;
+
+        void add(int doc, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+            live++;
+        }
+
+        /**
+         * Keeps the postings of live documents only, renumbered through {@code docRemap} ({@code -1} for dead ones).
+         */
+        void retain(int[] docRemap) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = docRemap[docs[i]];
+                if (doc >= 0) {
+                    docs[kept] = doc;
+                    frequencies[kept] = frequencies[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            if (docs.length > 4 && docs.length > kept * 2) {
+                docs = Arrays.copyOf(docs, Math.max(4, kept));
+                frequencies = Arrays.copyOf(frequencies, Math.max(4, kept));
+            }
+        }
+    }
+}
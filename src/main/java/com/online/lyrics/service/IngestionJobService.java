@@ -0,0 +1,340 @@
+package com.online.lyrics.service;
+
+import com.online.lyrics.model.EmbeddingBatchResult;
+import com.online.lyrics.model.IngestionJob;
+import com.online.lyrics.model.dto.BulkSongRequest;
+import com.online.lyrics.model.dto.IngestionJobResponse;
+import com.online.lyrics.repository.IngestionJobRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs bulk CSV ingestions as background jobs. Job progress and the checkpoint (the number of
+ * leading rows fully processed) are stored in Mongo, so interrupted jobs resume from it.
+ * <p>
+ * A node runs a job only while it holds the job's lease: the owner and heartbeat fields, claimed
+ * atomically and renewed every heartbeat interval. Jobs whose heartbeat is older than the lease
+ * timeout, because their node stopped, are claimed by whichever node finds them first.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IngestionJobService {
+
+    private static final List<IngestionJob.Status> UNFINISHED =
+            List.of(IngestionJob.Status.QUEUED, IngestionJob.Status.RUNNING);
+
+    private final SongEmbeddingService songEmbeddingService;
+    private final IngestionJobRepository ingestionJobRepository;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${lyrics.ingestion.jobs.heartbeat-interval:PT30S}")
+    private Duration heartbeatInterval;
+
+    @Value("${lyrics.ingestion.jobs.lease-timeout:PT2M}")
+    private Duration leaseTimeout;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ExecutorService jobExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService leaseExecutor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("ingestion-job-lease").daemon().factory());
+    private final Map<String, Future<?>> activeJobs = new ConcurrentHashMap<>();
+    private volatile boolean shuttingDown;
+
+    /**
+     * Creates an ingestion job for a CSV file, owned by this node, and starts it in the background.
+     *
+     * @param request the bulk song request containing the filename
+     * @return the job status right after submission
+     * @throws IllegalArgumentException if request or filename is null or empty
+     */
+    public IngestionJobResponse submit(BulkSongRequest request) {
+        if (request == null || request.fileName() == null || request.fileName().trim().isEmpty()) {
+            throw new IllegalArgumentException("Bulk request and filename cannot be null or empty");
+        }
+
+        IngestionJob job = new IngestionJob(request.fileName().trim());
+        job.setOwner(nodeId);
+        job.setHeartbeatAt(job.getCreatedAt());
+        job = ingestionJobRepository.save(job);
+        log.info("Submitted ingestion job {} for file: {}", job.getId(), job.getFileName());
+
+        start(job);
+        return toResponse(job);
+    }
+
+    /**
+     * Returns the current status of a job.
+     *
+     * @param jobId the job id
+     * @return the job status, or empty if the job does not exist
+     */
+    public Optional<IngestionJobResponse> findJob(String jobId) {
+        return ingestionJobRepository.findById(jobId).map(this::toResponse);
+    }
+
+    /**
+     * Resumes unfinished jobs whose lease has lapsed, and from then on renews the leases of this node's
+     * jobs and picks up jobs left behind by stopped nodes every heartbeat interval.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        long intervalMillis = heartbeatInterval.toMillis();
+        leaseExecutor.scheduleWithFixedDelay(this::maintainLeases, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Interrupts running jobs. They stay {@code RUNNING} with their last checkpoint, so they resume once
+     * their lease has lapsed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        leaseExecutor.shutdownNow();
+        jobExecutor.shutdownNow();
+    }
+
+    private void maintainLeases() {
+        try {
+            renewLeases();
+            claimStaleJobs();
+        } catch (Exception e) {
+            log.warn("Failed to maintain ingestion job leases: {}", e.getMessage());
+        }
+    }
+
+    private void renewLeases() {
+        for (Map.Entry<String, Future<?>> active : activeJobs.entrySet()) {
+            boolean renewed = mongoTemplate.updateFirst(ownedByThisNode(active.getKey()),
+                    Update.update("heartbeatAt", Instant.now()), IngestionJob.class).getMatchedCount() > 0;
+            if (!renewed) {
+                log.warn("Lost the lease of ingestion job {}, stopping it", active.getKey());
+                active.getValue().cancel(true);
+            }
+        }
+    }
+
+    private void claimStaleJobs() {
+        Instant staleBefore = Instant.now().minus(leaseTimeout);
+        for (IngestionJob candidate : ingestionJobRepository.findByStatusIn(UNFINISHED)) {
+            if (candidate.getHeartbeatAt() != null && candidate.getHeartbeatAt().isAfter(staleBefore)) {
+                continue;
+            }
+            IngestionJob job = claim(candidate.getId(), staleBefore);
+            if (job != null) {
+                log.info("Resuming ingestion job {} for file: {} from row {}",
+                        job.getId(), job.getFileName(), job.getCheckpointRows());
+                start(job);
+            }
+        }
+    }
+
+    /**
+     * Atomically takes over an unfinished job whose lease is missing or older than {@code staleBefore}.
+     *
+     * @return the claimed job, or {@code null} if another node holds or claimed it first
+     */
+    private IngestionJob claim(String jobId, Instant staleBefore) {
+        Query unclaimed = Query.query(Criteria.where("_id").is(jobId)
+                .and("status").in(UNFINISHED)
+                // A null match also covers jobs stored before leases existed
+                .orOperator(Criteria.where("heartbeatAt").is(null),
+                        Criteria.where("heartbeatAt").lt(staleBefore)));
+        Update lease = Update.update("owner", nodeId).set("heartbeatAt", Instant.now());
+        return mongoTemplate.findAndModify(unclaimed, lease, FindAndModifyOptions.options().returnNew(true),
+                IngestionJob.class);
+    }
+
+    private Query ownedByThisNode(String jobId) {
+        return Query.query(Criteria.where("_id").is(jobId).and("owner").is(nodeId));
+    }
+
+    private void start(IngestionJob job) {
+        activeJobs.computeIfAbsent(job.getId(), id -> jobExecutor.submit(() -> run(job)));
+    }
+
+    private void run(IngestionJob job) {
+        try {
+            if (job.getTotalRows() == 0) {
+                job.setTotalRows(songEmbeddingService.countSongsInFile(job.getFileName()));
+            }
+
+            synchronized (job) {
+                job.setStatus(IngestionJob.Status.RUNNING);
+                job.setRowsParsed(job.getCheckpointRows());
+                job.setRowsSaved(job.getCheckpointRows());
+                job.setRowsEmbedded(job.getCheckpointRowsEmbedded());
+                job.setRowsFailed(job.getCheckpointRowsFailed());
+                job.setRowsUnchanged(job.getCheckpointRowsUnchanged());
+                job.setRunStartedAt(Instant.now());
+                job.setRunStartRows(job.getCheckpointRows());
+                save(job);
+            }
+
+            songEmbeddingService.ingestFile(job.getFileName(), job.getCheckpointRows(), new JobProgress(job));
+
+            synchronized (job) {
+                job.setStatus(IngestionJob.Status.COMPLETED);
+                job.setFinishedAt(Instant.now());
+                save(job);
+            }
+            log.info("Ingestion job {} completed: {} rows embedded, {} unchanged, {} failed",
+                    job.getId(), job.getRowsEmbedded(), job.getRowsUnchanged(), job.getRowsFailed());
+
+        } catch (Exception e) {
+            if (isLeaseLost(e)) {
+                log.warn("Ingestion job {} stopped at row {}: its lease was taken over by another node",
+                        job.getId(), job.getCheckpointRows());
+                return;
+            }
+            if (shuttingDown || isInterruption(e)) {
+                // Not a failure: leave the job RUNNING so it resumes from its checkpoint once its lease lapses
+                log.info("Ingestion job {} interrupted at row {}, it resumes once its lease lapses",
+                        job.getId(), job.getCheckpointRows());
+                return;
+            }
+            log.error("Ingestion job {} failed", job.getId(), e);
+            try {
+                synchronized (job) {
+                    job.setStatus(IngestionJob.Status.FAILED);
+                    job.setError(e.getMessage());
+                    job.setFinishedAt(Instant.now());
+                    save(job);
+                }
+            } catch (LeaseLostException lost) {
+                log.warn("Could not record the failure of ingestion job {}: its lease was taken over", job.getId());
+            }
+        } finally {
+            activeJobs.remove(job.getId());
+        }
+    }
+
+    private static boolean isInterruption(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException) {
+                return true;
+            }
+        }
+        return Thread.currentThread().isInterrupted();
+    }
+
+    private static boolean isLeaseLost(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof LeaseLostException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the job, renewing its heartbeat, as long as this node still owns it.
+     *
+     * @throws LeaseLostException if another node has claimed the job
+     */
+    private void save(IngestionJob job) {
+        job.setUpdatedAt(Instant.now());
+        job.setOwner(nodeId);
+        job.setHeartbeatAt(job.getUpdatedAt());
+        if (mongoTemplate.findAndReplace(ownedByThisNode(job.getId()), job) == null) {
+            throw new LeaseLostException(job.getId());
+        }
+    }
+
+    private static class LeaseLostException extends IllegalStateException {
+        LeaseLostException(String jobId) {
+            super("Ingestion job " + jobId + " is owned by another node");
+        }
+    }
+
+    private IngestionJobResponse toResponse(IngestionJob job) {
+        long processed = job.getRowsEmbedded() + job.getRowsFailed() + job.getRowsUnchanged();
+        Double rowsPerSecond = null;
+        Long etaSeconds = null;
+
+        if (job.getStatus() == IngestionJob.Status.RUNNING && job.getRunStartedAt() != null) {
+            double elapsedSeconds = Duration.between(job.getRunStartedAt(), Instant.now()).toMillis() / 1000.0;
+            long processedThisRun = processed - job.getRunStartRows();
+            if (elapsedSeconds > 0 && processedThisRun > 0) {
+                rowsPerSecond = processedThisRun / elapsedSeconds;
+                etaSeconds = (long) Math.ceil(Math.max(0, job.getTotalRows() - processed) / rowsPerSecond);
+            }
+        }
+
+        return new IngestionJobResponse(job.getId(), job.getFileName(), job.getStatus().name(),
+                job.getTotalRows(), job.getRowsParsed(), job.getRowsSaved(), job.getRowsEmbedded(),
+                job.getRowsFailed(), job.getRowsUnchanged(), rowsPerSecond, etaSeconds, job.getError());
+    }
+
+    /**
+     * Updates the job counters and advances the checkpoint over chunks completed in file order.
+     */
+    private class JobProgress implements IngestionProgressListener {
+
+        private final IngestionJob job;
+        private final Map<Long, EmbeddingBatchResult> completedChunks = new HashMap<>();
+        private long nextChunkIndex = 0;
+
+        JobProgress(IngestionJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public void onChunkParsed(long chunkIndex, int rows) {
+            synchronized (job) {
+                job.setRowsParsed(job.getRowsParsed() + rows);
+            }
+        }
+
+        @Override
+        public void onChunkSaved(long chunkIndex, int rows) {
+            synchronized (job) {
+                job.setRowsSaved(job.getRowsSaved() + rows);
+                save(job);
+            }
+        }
+
+        @Override
+        public void onChunkEmbedded(long chunkIndex, int rows, EmbeddingBatchResult result) {
+            synchronized (job) {
+                job.setRowsEmbedded(job.getRowsEmbedded() + result.embeddedDocuments());
+                job.setRowsFailed(job.getRowsFailed() + result.failedDocuments());
+                job.setRowsUnchanged(job.getRowsUnchanged() + result.skippedDocuments());
+
+                completedChunks.put(chunkIndex, result);
+                while (completedChunks.containsKey(nextChunkIndex)) {
+                    EmbeddingBatchResult chunkResult = completedChunks.remove(nextChunkIndex++);
+                    job.setCheckpointRows(job.getCheckpointRows() + chunkResult.processedDocuments());
+                    job.setCheckpointRowsEmbedded(job.getCheckpointRowsEmbedded() + chunkResult.embeddedDocuments());
+                    job.setCheckpointRowsFailed(job.getCheckpointRowsFailed() + chunkResult.failedDocuments());
+                    job.setCheckpointRowsUnchanged(job.getCheckpointRowsUnchanged() + chunkResult.skippedDocuments());
+                }
+                save(job);
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.online.lyrics.service;
+
+import com.online.lyrics.model.EmbeddingBatchResult;
+
+/**
+ * Receives progress of a chunked ingestion run. Chunks are numbered from zero in file order;
+ * {@link #onChunkEmbedded} may be called from several threads and out of chunk order.
+ */
+public interface IngestionProgressListener {
+
+    IngestionProgressListener NONE = new IngestionProgressListener() {
+    };
+
+    default void onChunkParsed(long chunkIndex, int rows) {
+    }
+
+    default void onChunkSaved(long chunkIndex, int rows) {
+    }
+
+    default void onChunkEmbedded(long chunkIndex, int rows, EmbeddingBatchResult result) {
+    }
+}
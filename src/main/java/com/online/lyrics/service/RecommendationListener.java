@@ -0,0 +1,22 @@
+package com.online.lyrics.service;
+
+import com.online.lyrics.model.RecommendationResult;
+import com.online.lyrics.model.dto.SongRecommendationResponse;
+
+import java.util.List;
+
+/**
+ * Receives intermediate results of a recommendation request: the vector-similarity order as soon as
+ * the semantic search returns, then the final list, which is in vector order if re-ranking did not finish.
+ */
+public interface RecommendationListener {
+
+    RecommendationListener NONE = new RecommendationListener() {
+    };
+
+    default void onCandidates(List<SongRecommendationResponse> candidates) {
+    }
+
+    default void onReranked(RecommendationResult result) {
+    }
+}
@@ -1,19 +1,51 @@
 package com.online.lyrics.service;
 
-import com.online.lyrics.component.RerankComponent;
+import com.online.lyrics.component.DiversityPruningComponent;
+import com.online.lyrics.component.QueryEmbeddingComponent;
+import com.online.lyrics.component.RerankSelectorComponent;
 import com.online.lyrics.component.SemanticQueryComponent;
-import com.online.lyrics.model.Song;
+import com.online.lyrics.component.SemanticQueryComponent.MoodQuery;
+import com.online.lyrics.component.SongSummaryComponent;
+import com.online.lyrics.model.RecommendationResult;
+import com.online.lyrics.model.RecommendationResult.RerankStatus;
+import com.online.lyrics.model.SongFilter;
+import com.online.lyrics.model.SongSummary;
+import com.online.lyrics.model.dto.MusicRequest;
 import com.online.lyrics.model.dto.SongRecommendationResponse;
-import com.online.lyrics.repository.SongRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -21,32 +53,181 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class RecommendationService {
 
-    private static final int DEFAULT_LIMIT = 10;
-    private static final int MAX_LIMIT = 100;
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 100;
+    private static final String COALESCED_REQUESTS_METRIC = "lyrics.recommendations.coalesced";
 
-    private final SongRepository songRepository;
-    private final RerankComponent rerankComponent;
+    private final SongSummaryComponent songSummaryComponent;
+    private final RerankSelectorComponent rerankSelectorComponent;
+    private final DiversityPruningComponent diversityPruningComponent;
     private final SemanticQueryComponent semanticQueryComponent;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${lyrics.rerank.latency-budget:PT10S}")
+    private Duration defaultLatencyBudget;
+
+    @Value("${lyrics.recommendations.coalescing.enabled:true}")
+    private boolean coalescingEnabled;
+
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<RerankStatus, Counter> fallbackCounters = new EnumMap<>(RerankStatus.class);
+    private Counter coalescedRequests;
+    private DistributionSummary candidateCounts;
+    private Counter missingSongIds;
+    private Counter songsNotFound;
+
+    // Executions shared by concurrent identical requests
+    private final Map<MoodQuery, SharedExecution> inFlightRequests = new ConcurrentHashMap<>();
+
+    private final ExecutorService rerankExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private record RerankOutcome(List<Document> documents, RerankStatus status) {
+    }
+
+    /**
+     * A re-ranking started for a batch mood; {@code rerank} is null when there were no candidates.
+     */
+    private record PendingRerank(List<Document> candidates, Future<List<Document>> rerank, long startedAt) {
+    }
+
+    /**
+     * A coalesced execution: the candidates handed to the re-ranker, so joined requests can fall back to
+     * vector order within their own latency budget, and the final result.
+     */
+    private record SharedExecution(CompletableFuture<List<Document>> candidates,
+                                   CompletableFuture<RecommendationResult> result) {
+    }
 
     public List<SongRecommendationResponse> recommendSongs(String mood, int limit) {
+        return recommendSongs(mood, limit, SongFilter.NONE, null, RecommendationListener.NONE).recommendations();
+    }
+
+    /**
+     * Generates recommendations, reporting the vector-similarity order to the listener before the
+     * (slow) re-ranking starts. Re-ranking is abandoned once the latency budget is spent, in which case
+     * the candidates are returned in vector-similarity order.
+     * <p>
+     * Concurrent requests without a listener for the same normalized mood, limit and filter share one execution;
+     * each of them waits for the shared re-ranking only as long as its own latency budget allows.
+     *
+     * @param filter        restricts the candidate songs; applied within the vector search
+     * @param latencyBudget how long to wait for re-ranking, or {@code null} for the configured default
+     */
+    public RecommendationResult recommendSongs(String mood, int limit, SongFilter filter, Duration latencyBudget,
+                                               RecommendationListener listener) {
+        if (!coalescingEnabled || listener != RecommendationListener.NONE) {
+            return generateRecommendations(mood, limit, filter, latencyBudget, listener);
+        }
+
+        MoodQuery key = new MoodQuery(QueryEmbeddingComponent.normalizeMood(mood), limit, filter);
+        SharedExecution execution = new SharedExecution(new CompletableFuture<>(), new CompletableFuture<>());
+        SharedExecution inFlight = inFlightRequests.putIfAbsent(key, execution);
+        if (inFlight != null) {
+            coalescedRequests.increment();
+            log.debug("Joining in-flight recommendation request for mood: '{}' with limit: {}", mood, limit);
+            return awaitShared(inFlight, mood, limit, latencyBudget != null ? latencyBudget : defaultLatencyBudget);
+        }
+
+        try {
+            RecommendationResult result = generateRecommendations(mood, limit, filter, latencyBudget, listener,
+                    execution.candidates()::complete);
+            // No-op unless the pipeline finished without re-ranking anything
+            execution.candidates().complete(Collections.emptyList());
+            execution.result().complete(result);
+            return result;
+        } catch (Throwable e) {
+            // Errors too: joined requests would otherwise wait on the shared execution forever
+            execution.candidates().completeExceptionally(e);
+            execution.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightRequests.remove(key, execution);
+        }
+    }
+
+    /**
+     * Waits for a shared execution. Like the request running it, a joined request waits for the search
+     * unconditionally but for the re-ranking only within its own latency budget, then uses vector order.
+     */
+    private RecommendationResult awaitShared(SharedExecution inFlight, String mood, int limit, Duration latencyBudget) {
+        try {
+            List<Document> candidates = inFlight.candidates().join();
+            try {
+                return inFlight.result().get(latencyBudget.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                log.warn("Shared re-ranking for mood: '{}' exceeded the latency budget of {} ms, using vector order",
+                        mood, latencyBudget.toMillis());
+                RerankOutcome outcome = fallback(candidates, RerankStatus.TIMEOUT);
+                return new RecommendationResult(mapDocumentsToRecommendations(outcome.documents(), limit),
+                        outcome.status());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                RerankOutcome outcome = fallback(candidates, RerankStatus.FAILED);
+                return new RecommendationResult(mapDocumentsToRecommendations(outcome.documents(), limit),
+                        outcome.status());
+            } catch (ExecutionException e) {
+                throw sharedFailure(e.getCause());
+            }
+        } catch (CompletionException e) {
+            throw sharedFailure(e.getCause());
+        }
+    }
 
-        log.info("Requesting song recommendations for mood: '{}' with limit: {}", mood, limit);
+    private RuntimeException sharedFailure(Throwable cause) {
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return cause instanceof RuntimeException runtimeException ? runtimeException
+                : new RuntimeException("Recommendation generation failed", cause);
+    }
+
+    private RecommendationResult generateRecommendations(String mood, int limit, SongFilter filter,
+                                                         Duration latencyBudget, RecommendationListener listener) {
+        return generateRecommendations(mood, limit, filter, latencyBudget, listener, rerankInput -> {
+        });
+    }
+
+    private RecommendationResult generateRecommendations(String mood, int limit, SongFilter filter,
+                                                         Duration latencyBudget, RecommendationListener listener,
+                                                         Consumer<List<Document>> onRerankInput) {
+        return timeStage("total", () -> runPipeline(mood, limit, filter, latencyBudget, listener, onRerankInput));
+    }
+
+    private RecommendationResult runPipeline(String mood, int limit, SongFilter filter, Duration latencyBudget,
+                                             RecommendationListener listener, Consumer<List<Document>> onRerankInput) {
+
+        log.info("Requesting song recommendations for mood: '{}' with limit: {} and filter: {}", mood, limit, filter);
 
         try {
             // Get candidate songs through semantic search
-            List<Document> candidates = findCandidateSongs(mood, limit);
+            List<Document> candidates = timeStage("search", () -> findCandidateSongs(mood, limit, filter));
+            candidateCounts.record(candidates.size());
 
             if (candidates.isEmpty()) {
                 log.info("No candidate songs found for mood: '{}'", mood);
-                return Collections.emptyList();
+                listener.onCandidates(Collections.emptyList());
+                RecommendationResult empty = new RecommendationResult(Collections.emptyList(), RerankStatus.SKIPPED);
+                listener.onReranked(empty);
+                return empty;
+            }
+            if (listener != RecommendationListener.NONE) {
+                listener.onCandidates(mapDocumentsToRecommendations(candidates, limit));
             }
-            // Re-rank candidates using AI
-            List<Document> rerankedResults = rerankCandidates(mood, candidates);
+            // Drop near-duplicate candidates before they reach the re-ranker
+            List<Document> diverseCandidates = timeStage("prune",
+                    () -> diversityPruningComponent.prune(candidates, limit));
+            onRerankInput.accept(diverseCandidates);
+            // Re-rank candidates using AI, within the latency budget
+            RerankOutcome reranked = timeStage("rerank", () -> rerankCandidates(mood, diverseCandidates, limit,
+                    latencyBudget != null ? latencyBudget : defaultLatencyBudget));
             // Map to recommendation responses
-            List<SongRecommendationResponse> recommendations = mapDocumentsToRecommendations(rerankedResults, limit);
+            RecommendationResult result = new RecommendationResult(
+                    mapDocumentsToRecommendations(reranked.documents(), limit), reranked.status());
+            listener.onReranked(result);
 
-            log.info("Successfully generated {} recommendations for mood: '{}'", recommendations.size(), mood);
-            return recommendations;
+            log.info("Successfully generated {} recommendations for mood: '{}' ({})",
+                    result.recommendations().size(), mood, result.rerankStatus());
+            return result;
 
         } catch (Exception e) {
             log.error("Failed to generate recommendations for mood: '{}'", mood, e);
@@ -54,9 +235,117 @@ public class RecommendationService {
         }
     }
 
-    private List<Document> findCandidateSongs(String mood, int limit) {
+    /**
+     * Generates recommendations for several moods at once. The moods are embedded in one batch call,
+     * searched and re-ranked in parallel, and song details are fetched once for all of them.
+     * Identical requests (same normalized mood, limit and filter) are computed once; each of them waits for
+     * the shared re-ranking only within its own latency budget.
+     *
+     * @return one result per request, in request order
+     */
+    public List<RecommendationResult> recommendSongsBatch(List<MusicRequest> requests) {
+        log.info("Requesting song recommendations for a batch of {} moods", requests.size());
+
+        // De-duplicate identical requests; each keeps its own latency budget
+        Set<MoodQuery> distinctQueries = new LinkedHashSet<>();
+        List<MoodQuery> requestQueries = new ArrayList<>(requests.size());
+        List<Duration> requestBudgets = new ArrayList<>(requests.size());
+        for (MusicRequest request : requests) {
+            MoodQuery query = new MoodQuery(QueryEmbeddingComponent.normalizeMood(request.mood()),
+                    request.limit() != null ? request.limit() : DEFAULT_LIMIT, request.filter());
+            requestQueries.add(query);
+            distinctQueries.add(query);
+            requestBudgets.add(request.latencyBudgetMs() != null
+                    ? Duration.ofMillis(request.latencyBudgetMs()) : defaultLatencyBudget);
+        }
+        List<MoodQuery> queries = List.copyOf(distinctQueries);
+
+        Map<MoodQuery, PendingRerank> pending = new HashMap<>();
         try {
-            List<Document> candidates = semanticQueryComponent.similaritySearch(mood, limit);
+            List<List<Document>> candidates = semanticQueryComponent.similaritySearchAll(queries);
+
+            // Start re-ranking all moods concurrently
+            for (int i = 0; i < queries.size(); i++) {
+                MoodQuery query = queries.get(i);
+                List<Document> moodCandidates = candidates.get(i);
+                if (moodCandidates.isEmpty()) {
+                    pending.put(query, new PendingRerank(moodCandidates, null, 0));
+                    continue;
+                }
+                List<Document> diverseCandidates = timeStage("prune",
+                        () -> diversityPruningComponent.prune(moodCandidates, query.limit()));
+                pending.put(query, new PendingRerank(diverseCandidates,
+                        startRerank(query.mood(), diverseCandidates, query.limit()), System.nanoTime()));
+            }
+
+            // Collect each request's outcome within its own budget, counted from the start of its re-ranking
+            List<RerankOutcome> outcomes = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                MoodQuery query = requestQueries.get(i);
+                PendingRerank rerank = pending.get(query);
+                Duration budget = requestBudgets.get(i);
+                outcomes.add(rerank.rerank() == null
+                        ? new RerankOutcome(rerank.candidates(), RerankStatus.SKIPPED)
+                        : awaitRerank(query.mood(), rerank.candidates(), rerank.rerank(),
+                        rerank.startedAt() + budget.toNanos(), budget));
+            }
+
+            // One song lookup for the union of all candidates
+            Set<String> songIds = new LinkedHashSet<>();
+            for (int i = 0; i < requests.size(); i++) {
+                List<Document> documents = outcomes.get(i).documents();
+                int limit = requestQueries.get(i).limit();
+                songIds.addAll(collectSongIds(documents.subList(0, Math.min(limit, documents.size()))));
+            }
+            Map<String, SongSummary> songsById = findSongsByIds(songIds);
+
+            List<RecommendationResult> results = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                RerankOutcome outcome = outcomes.get(i);
+                results.add(new RecommendationResult(
+                        mapDocumentsToRecommendations(outcome.documents(), requestQueries.get(i).limit(), songsById),
+                        outcome.status()));
+            }
+
+            log.info("Successfully generated recommendations for {} moods ({} distinct)",
+                    requests.size(), queries.size());
+            return results;
+
+        } catch (Exception e) {
+            log.error("Failed to generate recommendations for a batch of {} moods", requests.size(), e);
+            throw new RuntimeException("Batch recommendation generation failed", e);
+        } finally {
+            // Abandon re-rankings no request is waiting for any more
+            for (PendingRerank rerank : pending.values()) {
+                if (rerank.rerank() != null) {
+                    rerank.rerank().cancel(true);
+                }
+            }
+        }
+    }
+
+    // Meters with fixed tags are registered once rather than looked up by name on every request
+    @PostConstruct
+    void registerMetrics() {
+        meterRegistry.gaugeMapSize("lyrics.recommendations.in-flight", List.of(), inFlightRequests);
+        coalescedRequests = meterRegistry.counter(COALESCED_REQUESTS_METRIC);
+        candidateCounts = meterRegistry.summary("lyrics.recommendation.candidates");
+        for (RerankStatus status : List.of(RerankStatus.TIMEOUT, RerankStatus.FAILED)) {
+            fallbackCounters.put(status, meterRegistry.counter("lyrics.recommendation.rerank.fallbacks",
+                    "status", status.name().toLowerCase()));
+        }
+        missingSongIds = meterRegistry.counter("lyrics.recommendation.dropped-songs", "reason", "missing-song-id");
+        songsNotFound = meterRegistry.counter("lyrics.recommendation.dropped-songs", "reason", "song-not-found");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rerankExecutor.shutdownNow();
+    }
+
+    private List<Document> findCandidateSongs(String mood, int limit, SongFilter filter) {
+        try {
+            List<Document> candidates = semanticQueryComponent.similaritySearch(mood, limit, filter);
             return candidates;
 
         } catch (Exception e) {
@@ -65,48 +354,117 @@ public class RecommendationService {
         }
     }
 
-    private List<Document> rerankCandidates(String mood, List<Document> candidates) {
+    private RerankOutcome rerankCandidates(String mood, List<Document> candidates, int limit, Duration latencyBudget) {
+        Future<List<Document>> rerank = startRerank(mood, candidates, limit);
+        RerankOutcome outcome = awaitRerank(mood, candidates, rerank, System.nanoTime() + latencyBudget.toNanos(),
+                latencyBudget);
+        // Abandon the call: a slow LLM must not pile up background re-rankings on top of new requests
+        rerank.cancel(true);
+        return outcome;
+    }
+
+    private Future<List<Document>> startRerank(String mood, List<Document> candidates, int limit) {
+        // The re-ranker annotates documents in place; give it copies so an abandoned call cannot touch the fallback
+        List<Document> copies = candidates.stream().map(this::copyOf).toList();
+        return rerankExecutor.submit(() -> rerankSelectorComponent.rerank(mood, copies, limit));
+    }
+
+    /**
+     * Waits for a re-ranking until {@code deadline} ({@link System#nanoTime()}), falling back to the candidates in
+     * vector order. Leaves the re-ranking running, so callers sharing it can still wait for it.
+     */
+    private RerankOutcome awaitRerank(String mood, List<Document> candidates, Future<List<Document>> rerank,
+                                      long deadline, Duration latencyBudget) {
         try {
-            List<Document> rerankedResults = rerankComponent.rerank(mood, candidates);
-            return rerankedResults;
+            return new RerankOutcome(rerank.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS),
+                    RerankStatus.RERANKED);
+        } catch (TimeoutException e) {
+            log.warn("Re-ranking for mood: '{}' exceeded the latency budget of {} ms, using vector order",
+                    mood, latencyBudget.toMillis());
+            return fallback(candidates, RerankStatus.TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback(candidates, RerankStatus.FAILED);
         } catch (Exception e) {
             log.error("Failed to re-rank candidates for mood: '{}'", mood, e);
-            return candidates;
+            return fallback(candidates, RerankStatus.FAILED);
         }
     }
 
+    private RerankOutcome fallback(List<Document> candidates, RerankStatus status) {
+        fallbackCounters.get(status).increment();
+        return new RerankOutcome(candidates, status);
+    }
+
+    private <T> T timeStage(String stage, Supplier<T> work) {
+        return stageTimers.computeIfAbsent(stage, name -> Timer.builder("lyrics.recommendation.stage")
+                        .tag("stage", name)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(work);
+    }
+
+    private Document copyOf(Document document) {
+        return Document.builder()
+                .id(document.getId())
+                .text(document.getText())
+                .metadata(new HashMap<>(document.getMetadata()))
+                .score(document.getScore())
+                .build();
+    }
+
+    List<SongRecommendationResponse> mapDocumentsToRecommendations(List<Document> documents, int limit) {
+        List<Document> limitedDocuments = documents.stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+
+        // Fetch all songs in one round trip (or from cache) instead of one lookup per document
+        Map<String, SongSummary> songsById = findSongsByIds(collectSongIds(limitedDocuments));
+
+        return mapDocumentsToRecommendations(limitedDocuments, limit, songsById);
+    }
 
-    private List<SongRecommendationResponse> mapDocumentsToRecommendations(List<Document> documents, int limit) {
+    private List<SongRecommendationResponse> mapDocumentsToRecommendations(List<Document> documents, int limit,
+                                                                           Map<String, SongSummary> songsById) {
         return documents.stream()
                 .limit(limit)
-                .map(this::mapDocumentToRecommendation)
+                .map(document -> mapDocumentToRecommendation(document, songsById))
                 .filter(Optional::isPresent)
                 .map(Optional::get)
                 .collect(Collectors.toList());
     }
 
-    private Optional<SongRecommendationResponse> mapDocumentToRecommendation(Document document) {
+    private Set<String> collectSongIds(List<Document> documents) {
+        return documents.stream()
+                .map(this::extractSongId)
+                .filter(StringUtils::hasText)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private Optional<SongRecommendationResponse> mapDocumentToRecommendation(Document document,
+                                                                             Map<String, SongSummary> songsById) {
         try {
 
             String songId = extractSongId(document);
             if (!StringUtils.hasText(songId)) {
+                missingSongIds.increment();
                 log.warn("Song ID is missing or empty in document metadata");
                 return Optional.empty();
             }
 
-            Optional<Song> songOptional = findSongById(songId);
-            if (songOptional.isEmpty()) {
+            SongSummary song = songsById.get(songId);
+            if (song == null) {
+                songsNotFound.increment();
                 log.warn("Song not found for ID: {}", songId);
                 return Optional.empty();
             }
 
-            Song song = songOptional.get();
             String motivation = extractMotivation(document);
 
             SongRecommendationResponse recommendation = createRecommendationResponse(song, motivation);
 
             log.debug("Successfully mapped song: '{}' by '{}' to recommendation",
-                    song.getTitle(), song.getArtist());
+                    song.title(), song.artist());
 
             return Optional.of(recommendation);
 
@@ -129,22 +487,22 @@ public class RecommendationService {
     }
 
 
-    private Optional<Song> findSongById(String songId) {
+    private Map<String, SongSummary> findSongsByIds(Set<String> songIds) {
         try {
-            return songRepository.findById(songId);
+            return timeStage("song-lookup", () -> songSummaryComponent.findAllById(songIds));
         } catch (Exception e) {
-            log.error("Database error while finding song with ID: {}", songId, e);
-            return Optional.empty();
+            log.error("Database error while finding {} songs", songIds.size(), e);
+            return Collections.emptyMap();
         }
     }
 
-    private SongRecommendationResponse createRecommendationResponse(Song song, String motivation) {
+    private SongRecommendationResponse createRecommendationResponse(SongSummary song, String motivation) {
         return new SongRecommendationResponse(
-                sanitizeText(song.getTitle()),
-                sanitizeText(song.getArtist()),
-                sanitizeText(song.getAlbum()),
-                sanitizeText(song.getGenre()),
-                song.getReleaseYear(),
+                song.title(),
+                song.artist(),
+                song.album(),
+                song.genre(),
+                song.releaseYear(),
                 sanitizeText(motivation)
         );
     }
@@ -2,22 +2,40 @@ package com.online.lyrics.service;
 
 
 import com.online.lyrics.component.DatasetGeneratorComponent;
+import com.online.lyrics.component.EmbeddingPipelineComponent;
+import com.online.lyrics.component.SongKeyComponent;
+import com.online.lyrics.event.IngestionCompletedEvent;
+import com.online.lyrics.event.SongsIngestedEvent;
+import com.online.lyrics.model.EmbeddingBatchResult;
 import com.online.lyrics.model.Song;
 import com.online.lyrics.model.dto.BulkSongRequest;
 import com.online.lyrics.model.dto.BulkSongResponse;
 import com.online.lyrics.model.dto.SongRequest;
 import com.online.lyrics.repository.SongRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -27,8 +45,23 @@ public class SongEmbeddingService {
     private static final String RESOURCES_PATH = "src/main/resources/";
 
     private final SongRepository songRepository;
+    private final EmbeddingPipelineComponent embeddingPipelineComponent;
     private final VectorStore vectorStore;
     private final DatasetGeneratorComponent datasetGeneratorComponent;
+    private final SongKeyComponent songKeyComponent;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private Counter embeddedRows;
+    private Counter failedRows;
+    private Counter unchangedRows;
+
+    @Value("${lyrics.ingestion.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${lyrics.ingestion.max-in-flight-chunks:2}")
+    private int maxInFlightChunks;
 
     /**
      * Creates and embeds multiple songs from a list of requests.
@@ -45,34 +78,11 @@ public class SongEmbeddingService {
 
         log.info("Starting bulk embedding for {} songs", requestList.size());
 
-        List<Song> savedSongs = new ArrayList<>();
-        List<Document> documents = new ArrayList<>();
-
-        try {
-            // Process and save songs in batch
-            for (SongRequest request : requestList) {
-                Song song = mapRequestToSong(request);
-                savedSongs.add(song);
-            }
-
-            // Save all songs to database
-            savedSongs = songRepository.saveAll(savedSongs);
+        EmbeddingBatchResult result = ingestSongRequests(requestList.stream(), IngestionProgressListener.NONE);
 
-            // Create documents for embedding
-            documents = savedSongs.stream()
-                    .map(this::createDocumentFromSong)
-                    .collect(Collectors.toList());
-
-            // Embed all documents
-            embedDocuments(documents);
-
-            log.info("Successfully embedded {} songs", documents.size());
-            return documents.size();
-
-        } catch (Exception e) {
-            log.error("Failed to embed songs in bulk", e);
-            throw new RuntimeException("Bulk embedding failed", e);
-        }
+        log.info("Successfully embedded {} songs ({} unchanged, {} failed)",
+                result.embeddedDocuments(), result.skippedDocuments(), result.failedDocuments());
+        return result.embeddedDocuments();
     }
 
     /**
@@ -88,25 +98,282 @@ public class SongEmbeddingService {
             throw new IllegalArgumentException("Bulk request and filename cannot be null or empty");
         }
 
-        String filePath = Paths.get(RESOURCES_PATH, request.fileName()).toString();
-        log.info("Processing bulk song embedding from file: {}", filePath);
+        EmbeddingBatchResult result = ingestFile(request.fileName(), 0, IngestionProgressListener.NONE);
 
-        try {
-            List<SongRequest> songRequestList = datasetGeneratorComponent.generateSongRequestFromCSV(filePath);
+        if (result.processedDocuments() == 0) {
+            log.warn("No songs found in file: {}", request.fileName());
+            return new BulkSongResponse(0);
+        }
 
-            if (songRequestList.isEmpty()) {
-                log.warn("No songs found in file: {}", filePath);
-                return new BulkSongResponse(0);
-            }
+        log.info("Successfully processed {} songs from file: {} ({} unchanged, {} songs in {} batches failed)",
+                result.embeddedDocuments(), request.fileName(), result.skippedDocuments(),
+                result.failedDocuments(), result.failedBatches());
+        return new BulkSongResponse(result.embeddedDocuments(), result.skippedDocuments(), result.failedDocuments(),
+                result.succeededBatches(), result.failedBatches());
+    }
 
-            Integer numberOfEmbeddedSongs = createEmbeddingFromSongList(songRequestList);
+    /**
+     * Ingests the songs of a CSV file, optionally skipping rows already ingested by an earlier run.
+     *
+     * @param fileName the CSV file name, relative to the resources folder
+     * @param skipRows the number of leading valid rows to skip
+     * @param listener receives per-chunk progress
+     * @return the embedding counts of this run
+     * @throws RuntimeException if file processing fails
+     */
+    public EmbeddingBatchResult ingestFile(String fileName, long skipRows, IngestionProgressListener listener) {
+        String filePath = Paths.get(RESOURCES_PATH, fileName).toString();
+        log.info("Processing bulk song embedding from file: {} (skipping {} rows)", filePath, skipRows);
 
-            log.info("Successfully processed {} songs from file: {}", numberOfEmbeddedSongs, request.fileName());
-            return new BulkSongResponse(numberOfEmbeddedSongs);
+        try (Stream<SongRequest> songRequests = datasetGeneratorComponent.streamSongRequestsFromCSV(filePath)) {
+            return ingestSongRequests(songRequests.skip(skipRows), listener);
+        } catch (IOException e) {
+            log.error("Failed to read CSV file: {}", filePath, e);
+            throw new RuntimeException("Failed to process CSV file: " + fileName, e);
+        }
+    }
 
+    /**
+     * Counts the valid song rows of a CSV file without ingesting them.
+     *
+     * @param fileName the CSV file name, relative to the resources folder
+     * @return the number of rows that would be ingested
+     * @throws RuntimeException if the file cannot be read
+     */
+    public long countSongsInFile(String fileName) {
+        String filePath = Paths.get(RESOURCES_PATH, fileName).toString();
+        try (Stream<SongRequest> songRequests = datasetGeneratorComponent.streamSongRequestsFromCSV(filePath)) {
+            return songRequests.count();
         } catch (IOException e) {
             log.error("Failed to read CSV file: {}", filePath, e);
-            throw new RuntimeException("Failed to process CSV file: " + request.fileName(), e);
+            throw new RuntimeException("Failed to process CSV file: " + fileName, e);
+        }
+    }
+
+    /**
+     * Ingests songs as a pipeline of fixed-size chunks. Each chunk is saved on the calling thread
+     * while earlier chunks are embedded on virtual threads; at most {@code maxInFlightChunks}
+     * chunks wait for embedding, so memory use does not depend on the number of songs.
+     *
+     * @param songRequests the songs to ingest, consumed lazily
+     * @param listener     receives per-chunk progress
+     * @return the embedding counts over all chunks
+     */
+    private EmbeddingBatchResult ingestSongRequests(Stream<SongRequest> songRequests, IngestionProgressListener listener) {
+        Semaphore inFlightChunks = new Semaphore(maxInFlightChunks);
+        AtomicReference<EmbeddingBatchResult> result = new AtomicReference<>(EmbeddingBatchResult.EMPTY);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Iterator<SongRequest> iterator = songRequests.iterator();
+            List<SongRequest> chunk = new ArrayList<>(chunkSize);
+            long chunkIndex = 0;
+
+            Timer.Sample parse = Timer.start(meterRegistry);
+
+            while (failure.get() == null && iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() < chunkSize && iterator.hasNext()) {
+                    continue;
+                }
+
+                long savedChunkIndex = chunkIndex++;
+                parse.stop(stageTimer("parse"));
+                listener.onChunkParsed(savedChunkIndex, chunk.size());
+                int chunkRows = chunk.size();
+                List<SongRequest> parsedChunk = chunk;
+                SavedChunk savedChunk = stageTimer("save").record(() -> saveSongs(parsedChunk));
+                listener.onChunkSaved(savedChunkIndex, chunkRows);
+                chunk = new ArrayList<>(chunkSize);
+
+                inFlightChunks.acquire();
+                executor.submit(() -> {
+                    try {
+                        EmbeddingBatchResult chunkResult = stageTimer("embed")
+                                .record(() -> embedSongs(savedChunk.songsToEmbed(), savedChunk.replacedSongIds()))
+                                .merge(EmbeddingBatchResult.skipped(savedChunk.unchangedSongs()));
+                        result.accumulateAndGet(chunkResult, EmbeddingBatchResult::merge);
+                        recordRows(chunkResult);
+                        listener.onChunkEmbedded(savedChunkIndex, chunkRows, chunkResult);
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlightChunks.release();
+                    }
+                });
+                parse = Timer.start(meterRegistry);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Bulk embedding interrupted", e);
+        } catch (Exception e) {
+            log.error("Failed to embed songs in bulk", e);
+            throw new RuntimeException("Bulk embedding failed", e);
+        } finally {
+            // Runs after the executor has waited for the in-flight chunks
+            if (result.get().embeddedDocuments() > 0) {
+                eventPublisher.publishEvent(new IngestionCompletedEvent(result.get().embeddedDocuments()));
+            }
+        }
+
+        if (failure.get() != null) {
+            log.error("Failed to embed songs in bulk", failure.get());
+            throw new RuntimeException("Bulk embedding failed", failure.get());
+        }
+        return result.get();
+    }
+
+    private Timer stageTimer(String stage) {
+        return stageTimers.computeIfAbsent(stage, name -> Timer.builder("lyrics.ingestion.stage")
+                .tag("stage", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private void recordRows(EmbeddingBatchResult chunkResult) {
+        embeddedRows.increment(chunkResult.embeddedDocuments());
+        failedRows.increment(chunkResult.failedDocuments());
+        unchangedRows.increment(chunkResult.skippedDocuments());
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        embeddedRows = meterRegistry.counter("lyrics.ingestion.rows", "outcome", "embedded");
+        failedRows = meterRegistry.counter("lyrics.ingestion.rows", "outcome", "failed");
+        unchangedRows = meterRegistry.counter("lyrics.ingestion.rows", "outcome", "unchanged");
+    }
+
+    /**
+     * Saves the new songs of a chunk and finds its changed ones. Songs are matched to existing ones with a
+     * single lookup by song key; songs whose content hash did not change are neither saved nor re-embedded.
+     * New songs are saved without their content hash, which is only stored once they are embedded, so an
+     * interrupted import embeds them again. Changed songs keep their id and are only overwritten once their
+     * new version is embedded.
+     *
+     * @param requests the song requests
+     * @return the songs to embed, the ids of the changed songs among them, and the unchanged count
+     */
+    private SavedChunk saveSongs(List<SongRequest> requests) {
+        // Last occurrence wins when the same song appears twice in a chunk
+        Map<String, Song> songsByKey = new LinkedHashMap<>();
+        for (SongRequest request : requests) {
+            Song song = mapRequestToSong(request);
+            songsByKey.put(song.getSongKey(), song);
+        }
+        int duplicates = requests.size() - songsByKey.size();
+
+        Map<String, Song> existingByKey = songRepository.findBySongKeyIn(songsByKey.keySet()).stream()
+                .collect(Collectors.toMap(Song::getSongKey, song -> song, (first, second) -> first));
+
+        List<Song> newSongs = new ArrayList<>();
+        List<Song> changedSongs = new ArrayList<>();
+        Set<String> replacedSongIds = new HashSet<>();
+        int unchanged = duplicates;
+
+        for (Song song : songsByKey.values()) {
+            Song existing = existingByKey.get(song.getSongKey());
+            if (existing == null) {
+                newSongs.add(song);
+            } else if (Objects.equals(existing.getContentHash(), song.getContentHash())) {
+                unchanged++;
+            } else {
+                song.setId(existing.getId());
+                replacedSongIds.add(existing.getId());
+                changedSongs.add(song);
+            }
+        }
+
+        List<Song> songsToEmbed = new ArrayList<>(saveWithoutContentHash(newSongs));
+        songsToEmbed.addAll(changedSongs);
+        return new SavedChunk(songsToEmbed, replacedSongIds, unchanged);
+    }
+
+    private List<Song> saveWithoutContentHash(List<Song> songs) {
+        if (songs.isEmpty()) {
+            return List.of();
+        }
+        List<String> contentHashes = songs.stream().map(Song::getContentHash).toList();
+        songs.forEach(song -> song.setContentHash(null));
+        List<Song> savedSongs = songRepository.saveAll(songs);
+        for (int i = 0; i < savedSongs.size(); i++) {
+            savedSongs.get(i).setContentHash(contentHashes.get(i));
+        }
+        return savedSongs;
+    }
+
+    private record SavedChunk(List<Song> songsToEmbed, Set<String> replacedSongIds, int unchangedSongs) {
+    }
+
+    /**
+     * Embeds a chunk of songs and notifies listeners of the ingestion. Embedded songs are saved with
+     * their content hash, and the previous vectors of changed songs are removed. New songs whose embedding
+     * batch failed are removed again so a later import picks them up; changed songs whose batch failed keep
+     * their previous version and vectors.
+     *
+     * @param songs           the new and changed songs
+     * @param replacedSongIds ids of changed songs whose previous vectors must be replaced
+     * @return the embedding counts of the chunk
+     */
+    private EmbeddingBatchResult embedSongs(List<Song> songs, Set<String> replacedSongIds) {
+        if (songs.isEmpty()) {
+            return EmbeddingBatchResult.EMPTY;
+        }
+
+        List<Document> documents = songs.stream()
+                .map(this::createDocumentFromSong)
+                .collect(Collectors.toList());
+
+        EmbeddingPipelineComponent.Outcome outcome = embeddingPipelineComponent.embed(documents);
+
+        Set<String> failedSongIds = outcome.failedDocuments().stream()
+                .map(document -> document.getMetadata().get("songId").toString())
+                .collect(Collectors.toSet());
+        List<Song> embeddedSongs = songs.stream()
+                .filter(song -> !failedSongIds.contains(song.getId()))
+                .toList();
+
+        if (!embeddedSongs.isEmpty()) {
+            songRepository.saveAll(embeddedSongs);
+            deletePreviousVectors(embeddedSongs.stream()
+                    .filter(song -> replacedSongIds.contains(song.getId()))
+                    .toList());
+        }
+        List<String> failedNewSongIds = failedSongIds.stream()
+                .filter(id -> !replacedSongIds.contains(id))
+                .toList();
+        if (!failedNewSongIds.isEmpty()) {
+            songRepository.deleteAllById(failedNewSongIds);
+        }
+
+        // Let catalog-derived caches drop stale entries
+        eventPublisher.publishEvent(new SongsIngestedEvent(embeddedSongs.stream()
+                .map(Song::getId)
+                .collect(Collectors.toList())));
+
+        log.debug("Embedded chunk of {} songs ({} failed)", outcome.result().embeddedDocuments(),
+                outcome.result().failedDocuments());
+        return outcome.result();
+    }
+
+    /**
+     * Removes the previous vector entries of re-embedded songs. The new entries share the song id and
+     * have replaced those already; this removes entries written before vector ids were derived from
+     * the song id, recognized by a content hash other than the new one.
+     *
+     * @param songs the re-embedded changed songs
+     */
+    private void deletePreviousVectors(List<Song> songs) {
+        if (songs.isEmpty()) {
+            return;
+        }
+        FilterExpressionBuilder b = new FilterExpressionBuilder();
+        try {
+            vectorStore.delete(b.and(
+                    b.in("songId", songs.stream().map(Song::getId).collect(Collectors.toList())),
+                    b.nin("contentHash", songs.stream().map(Song::getContentHash).collect(Collectors.toList())))
+                    .build());
+        } catch (Exception e) {
+            log.warn("Failed to delete previous vectors of {} changed songs: {}", songs.size(), e.getMessage());
         }
     }
 
@@ -128,7 +395,8 @@ public class SongEmbeddingService {
 
         Map<String, Object> metadata = createMetadata(song);
 
-        return new Document(content.toString(), metadata);
+        // The song id doubles as vector id, so re-embedding a song replaces its entry
+        return new Document(song.getId(), content.toString(), metadata);
     }
 
     /**
@@ -146,25 +414,10 @@ public class SongEmbeddingService {
         metadata.put("genre", song.getGenre());
         metadata.put("description", song.getDescription());
         metadata.put("releaseYear", song.getReleaseYear());
+        metadata.put("contentHash", song.getContentHash());
         return metadata;
     }
 
-    /**
-     * Embeds a list of documents in the vector store.
-     *
-     * @param documents the documents to embed
-     */
-    private void embedDocuments(List<Document> documents) {
-        try {
-            vectorStore.add(documents);
-            log.debug("Successfully embedded {} documents", documents.size());
-        } catch (Exception e) {
-            log.error("Failed to embed documents", e);
-            throw new RuntimeException("Vector embedding failed", e);
-        }
-    }
-
-
     /**
      * Maps a SongRequest to a Song entity.
      *
@@ -180,6 +433,8 @@ public class SongEmbeddingService {
         song.setDescription(sanitizeText(request.description()));
         song.setLyrics(sanitizeText(request.lyrics()));
         song.setReleaseYear(request.releaseYear());
+        song.setSongKey(songKeyComponent.songKey(song.getArtist(), song.getTitle()));
+        song.setContentHash(songKeyComponent.contentHash(song.getArtist(), song.getTitle(), song.getLyrics()));
         return song;
     }
 
@@ -0,0 +1,70 @@
+package com.online.lyrics.vector;
+
+import org.bson.Document;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Translates a Spring AI filter expression into the MQL {@code filter} of an Atlas {@code $vectorSearch}
+ * stage. Keys refer to document metadata and must be declared as filter fields of the vector index
+ * ({@code spring.ai.vectorstore.mongodb.metadata-fields-to-filter}).
+ */
+final class AtlasFilterConverter {
+
+    private static final String METADATA_PREFIX = "metadata.";
+
+    private AtlasFilterConverter() {
+    }
+
+    static Document convert(Filter.Expression expression) {
+        return switch (expression.type()) {
+            case AND -> new Document("$and", List.of(operand(expression.left()), operand(expression.right())));
+            case OR -> new Document("$or", List.of(operand(expression.left()), operand(expression.right())));
+            case NOT -> new Document("$nor", List.of(operand(expression.left())));
+            case EQ -> comparison(expression, "$eq");
+            case NE -> comparison(expression, "$ne");
+            case GT -> comparison(expression, "$gt");
+            case GTE -> comparison(expression, "$gte");
+            case LT -> comparison(expression, "$lt");
+            case LTE -> comparison(expression, "$lte");
+            case IN -> comparison(expression, "$in");
+            case NIN -> comparison(expression, "$nin");
+            default -> throw new UnsupportedOperationException("Unsupported filter operator: " + expression.type());
+        };
+    }
+
+    private static Document operand(Filter.Operand operand) {
+        if (operand instanceof Filter.Expression expression) {
+            return convert(expression);
+        }
+        if (operand instanceof Filter.Group group) {
+            return convert(group.content());
+        }
+        throw new IllegalArgumentException("Expected a boolean operand but got: " + operand);
+    }
+
+    private static Document comparison(Filter.Expression expression, String operator) {
+        if (!(expression.left() instanceof Filter.Key key)) {
+            throw new IllegalArgumentException("Expected a metadata key but got: " + expression.left());
+        }
+        if (!(expression.right() instanceof Filter.Value value)) {
+            throw new IllegalArgumentException("Expected a literal value but got: " + expression.right());
+        }
+
+        Object literal = value.value();
+        // $in and $nin take an array, the other operators a single value
+        if ((operator.equals("$in") || operator.equals("$nin")) && !(literal instanceof Collection<?>)) {
+            literal = List.of(literal);
+        }
+        return new Document(METADATA_PREFIX + unquote(key.key()), new Document(operator, literal));
+    }
+
+    private static String unquote(String name) {
+        if (name.length() > 1 && (name.startsWith("\"") || name.startsWith("'"))) {
+            return name.substring(1, name.length() - 1);
+        }
+        return name;
+    }
+}
@@ -0,0 +1,80 @@
+package com.online.lyrics.vector;
+
+import org.bson.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs an Atlas {@code $vectorSearch} aggregation with a precomputed query vector
+ * against the vector store collection and index. Filter expressions of the request are
+ * passed to {@code $vectorSearch} as a pre-filter.
+ */
+@Component
+public class AtlasQueryVectorSearch implements QueryVectorSearch {
+
+    private static final int NUM_CANDIDATES_MULTIPLIER = 10;
+
+    private final MongoTemplate mongoTemplate;
+    private final LyricsVectorCollection vectorCollection;
+    private final String indexName;
+
+    public AtlasQueryVectorSearch(MongoTemplate mongoTemplate,
+                                  LyricsVectorCollection vectorCollection,
+                                  @Value("${spring.ai.vectorstore.mongodb.index-name:vector_index}") String indexName) {
+        this.mongoTemplate = mongoTemplate;
+        this.vectorCollection = vectorCollection;
+        this.indexName = indexName;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<org.springframework.ai.document.Document> similaritySearch(float[] queryVector, SearchRequest request) {
+        List<Double> vector = new ArrayList<>(queryVector.length);
+        for (float component : queryVector) {
+            vector.add((double) component);
+        }
+
+        Document vectorSearch = new Document("index", indexName)
+                .append("path", vectorCollection.getEmbeddingPath())
+                .append("queryVector", vector)
+                .append("numCandidates", request.getTopK() * NUM_CANDIDATES_MULTIPLIER)
+                .append("limit", request.getTopK());
+        if (request.hasFilterExpression()) {
+            // Pre-filter inside the ANN search, so the limit nearest matching documents are returned
+            vectorSearch.append("filter", AtlasFilterConverter.convert(request.getFilterExpression()));
+        }
+
+        List<Document> pipeline = List.of(
+                new Document("$vectorSearch", vectorSearch),
+                new Document("$project", new Document(vectorCollection.getEmbeddingPath(), 0)
+                        .append("score", new Document("$meta", "vectorSearchScore"))),
+                new Document("$match", new Document("score",
+                        new Document("$gte", request.getSimilarityThreshold()))));
+
+        List<org.springframework.ai.document.Document> results = new ArrayList<>();
+        for (Document hit : mongoTemplate.getCollection(vectorCollection.getCollectionName()).aggregate(pipeline)) {
+            double score = hit.get("score", Number.class).doubleValue();
+            Object metadata = hit.get("metadata");
+            Map<String, Object> metadataMap = metadata instanceof Map<?, ?> map
+                    ? new HashMap<>((Map<String, Object>) map)
+                    : new HashMap<>();
+            metadataMap.put("distance", 1.0 - score);
+
+            String content = hit.getString("content");
+            results.add(org.springframework.ai.document.Document.builder()
+                    .id(hit.get("_id").toString())
+                    .text(content != null ? content : "")
+                    .metadata(metadataMap)
+                    .score(score)
+                    .build());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,552 @@
+package com.online.lyrics.vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Hierarchical Navigable Small World graph over primitive float vectors.
+ * <p>
+ * Vectors are L2-normalized on insert so that the inner product equals the cosine similarity.
+ * With {@link QuantizedVector.Encoding#INT8} they are kept scalar-quantized, a quarter of the float size,
+ * and similarities are approximate.
+ * Removals are tombstones: removed nodes stay in the graph for navigation but are never returned.
+ * Once tombstones outnumber half of the live nodes the graph is rebuilt from the live nodes only.
+ * Searches share a read lock, inserts and removals take the write lock.
+ */
+public class HnswIndex {
+
+    private static final int EF_GROWTH = 4;
+    // Beam widenings before a search falls back to scanning all nodes
+    private static final int MAX_WIDENINGS = 2;
+    // Tombstones tolerated, relative to the live nodes (and at least the minimum), before the graph is compacted
+    private static final double COMPACTION_RATIO = 0.5;
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 1024;
+
+    private final int maxConnections;
+    private final int maxConnectionsLevelZero;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final QuantizedVector.Encoding encoding;
+
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<String, Integer> nodeIdsById = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<VisitedMarks> visitedMarks = ThreadLocal.withInitial(VisitedMarks::new);
+
+    private int dimensions = -1;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int liveCount = 0;
+    private int tombstones = 0;
+
+    public HnswIndex(int maxConnections, int efConstruction, int efSearch) {
+        this(maxConnections, efConstruction, efSearch, QuantizedVector.Encoding.FLOAT32);
+    }
+
+    public HnswIndex(int maxConnections, int efConstruction, int efSearch, QuantizedVector.Encoding encoding) {
+        if (maxConnections < 2 || efConstruction < 1 || efSearch < 1) {
+            throw new IllegalArgumentException("Invalid HNSW parameters");
+        }
+        if (encoding == QuantizedVector.Encoding.BINARY) {
+            // Sign bits are too coarse to navigate the graph
+            throw new IllegalArgumentException("Binary vectors are not supported");
+        }
+        this.encoding = encoding;
+        this.maxConnections = maxConnections;
+        this.maxConnectionsLevelZero = maxConnections * 2;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1.0 / Math.log(maxConnections);
+    }
+
+    /**
+     * A search hit: the external id and the cosine similarity to the query.
+     */
+    public record Match(String id, float similarity) {
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Nodes in the graph, live and tombstoned.
+     */
+    int nodeCount() {
+        lock.readLock().lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public QuantizedVector.Encoding encoding() {
+        return encoding;
+    }
+
+    /**
+     * Inserts a vector, replacing any vector previously stored under the same id.
+     */
+    public void add(String id, float[] vector) {
+        float[] normalized = normalize(vector);
+        int level = randomLevel();
+
+        lock.writeLock().lock();
+        try {
+            if (dimensions < 0) {
+                dimensions = normalized.length;
+            } else if (dimensions != normalized.length) {
+                throw new IllegalArgumentException("Expected vector of " + dimensions
+                        + " dimensions but got " + normalized.length);
+            }
+
+            removeInternal(id);
+
+            QuantizedVector quantized = encoding == QuantizedVector.Encoding.INT8
+                    ? QuantizedVector.encode(normalized, encoding)
+                    : null;
+            insert(new Node(id, quantized == null ? normalized : null, quantized, level,
+                    maxConnections, maxConnectionsLevelZero), normalized);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Links {@code node} into the graph; {@code normalized} is its vector, used to find the neighbours.
+     */
+    private void insert(Node node, float[] normalized) {
+        int nodeId = nodes.size();
+        int level = node.links.length - 1;
+        nodes.add(node);
+        nodeIdsById.put(node.id, nodeId);
+        liveCount++;
+
+        if (entryPoint < 0) {
+            entryPoint = nodeId;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(normalized, current, l);
+        }
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            PriorityQueue<Candidate> found = searchLayer(normalized, current, efConstruction, l);
+            List<Candidate> neighbours = selectNeighbours(found, l == 0 ? maxConnectionsLevelZero : maxConnections);
+            for (Candidate neighbour : neighbours) {
+                node.link(l, neighbour.node());
+                connectBack(neighbour.node(), nodeId, l);
+            }
+            if (!neighbours.isEmpty()) {
+                current = neighbours.get(0).node();
+            }
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = nodeId;
+        }
+    }
+
+    public boolean remove(String id) {
+        lock.writeLock().lock();
+        try {
+            return removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(String id) {
+        lock.readLock().lock();
+        try {
+            return nodeIdsById.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a copy of the stored (normalized) vector for the given id, or {@code null}.
+     * Quantized vectors are decoded, so the result is approximate.
+     */
+    public float[] vector(String id) {
+        lock.readLock().lock();
+        try {
+            Integer nodeId = nodeIdsById.get(id);
+            if (nodeId == null) {
+                return null;
+            }
+            Node node = nodes.get(nodeId);
+            return node.quantized != null ? node.quantized.decode() : node.vector.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate top-k search. Only ids accepted by {@code filter} are returned;
+     * rejected nodes are still used to navigate the graph. Tombstones and a selective filter can reject
+     * most of the search beam, so it is widened up to {@link #MAX_WIDENINGS} times; if that still finds fewer
+     * than {@code k} matches, the live nodes accepted by the filter are scanned exactly instead.
+     */
+    public List<Match> search(float[] query, int k, Predicate<String> filter) {
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+        float[] normalized = normalize(query);
+
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || liveCount == 0) {
+                return Collections.emptyList();
+            }
+            if (normalized.length != dimensions) {
+                throw new IllegalArgumentException("Expected query of " + dimensions
+                        + " dimensions but got " + normalized.length);
+            }
+
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedyClosest(normalized, current, l);
+            }
+
+            int wanted = Math.min(k, liveCount);
+            int ef = Math.max(efSearch, k);
+            for (int widening = 0; ; widening++) {
+                PriorityQueue<Candidate> found = searchLayer(normalized, current, ef, 0);
+
+                List<Candidate> ordered = new ArrayList<>(found);
+                ordered.sort(Candidate.BY_SIMILARITY_DESC);
+
+                List<Match> matches = new ArrayList<>(Math.min(k, ordered.size()));
+                for (Candidate candidate : ordered) {
+                    Node node = nodes.get(candidate.node());
+                    if (node.deleted || (filter != null && !filter.test(node.id))) {
+                        continue;
+                    }
+                    matches.add(new Match(node.id, candidate.similarity()));
+                    if (matches.size() == k) {
+                        break;
+                    }
+                }
+                if (matches.size() >= wanted || ef >= nodes.size()) {
+                    return matches;
+                }
+                if (widening == MAX_WIDENINGS) {
+                    // A beam covering most of the graph costs more than comparing the few matching nodes
+                    return scan(normalized, k, filter);
+                }
+                ef = Math.min(ef * EF_GROWTH, nodes.size());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Exact top-k over the live nodes accepted by {@code filter}; the filter is tested before any similarity.
+     */
+    private List<Match> scan(float[] query, int k, Predicate<String> filter) {
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Candidate.BY_SIMILARITY_ASC);
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            if (node.deleted || (filter != null && !filter.test(node.id))) {
+                continue;
+            }
+            best.add(new Candidate(i, similarity(query, node)));
+            if (best.size() > k) {
+                best.poll();
+            }
+        }
+
+        List<Candidate> ordered = new ArrayList<>(best);
+        ordered.sort(Candidate.BY_SIMILARITY_DESC);
+        List<Match> matches = new ArrayList<>(ordered.size());
+        for (Candidate candidate : ordered) {
+            matches.add(new Match(nodes.get(candidate.node()).id, candidate.similarity()));
+        }
+        return matches;
+    }
+
+    private boolean removeInternal(String id) {
+        Integer existing = nodeIdsById.remove(id);
+        if (existing == null) {
+            return false;
+        }
+        nodes.get(existing).deleted = true;
+        liveCount--;
+        tombstones++;
+        if (tombstones >= MIN_TOMBSTONES_TO_COMPACT && tombstones > liveCount * COMPACTION_RATIO) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Rebuilds the graph from the live nodes, keeping their vectors and levels, so that tombstones
+     * no longer cost memory or search time. Quantized nodes are linked using their decoded vectors.
+     */
+    private void compact() {
+        List<Node> live = new ArrayList<>(liveCount);
+        for (Node node : nodes) {
+            if (!node.deleted) {
+                live.add(node);
+            }
+        }
+
+        nodes.clear();
+        nodeIdsById.clear();
+        entryPoint = -1;
+        maxLevel = -1;
+        liveCount = 0;
+        tombstones = 0;
+        for (Node node : live) {
+            insert(new Node(node.id, node.vector, node.quantized, node.links.length - 1,
+                    maxConnections, maxConnectionsLevelZero), node.vector != null ? node.vector : node.quantized.decode());
+        }
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float best = similarity(query, nodes.get(current));
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            Node node = nodes.get(current);
+            int[] links = node.links[level];
+            for (int i = 0; i < node.sizes[level]; i++) {
+                float similarity = similarity(query, nodes.get(links[i]));
+                if (similarity > best) {
+                    best = similarity;
+                    current = links[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one layer; returns a min-heap (worst on top) of at most {@code ef} candidates.
+     */
+    private PriorityQueue<Candidate> searchLayer(float[] query, int entry, int ef, int level) {
+        VisitedMarks visited = visitedMarks.get();
+        visited.reset(nodes.size());
+
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Candidate.BY_SIMILARITY_DESC);
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Candidate.BY_SIMILARITY_ASC);
+
+        Candidate start = new Candidate(entry, similarity(query, nodes.get(entry)));
+        visited.mark(entry);
+        candidates.add(start);
+        results.add(start);
+
+        while (!candidates.isEmpty()) {
+            Candidate closest = candidates.poll();
+            if (results.size() >= ef && closest.similarity() < results.peek().similarity()) {
+                break;
+            }
+
+            Node node = nodes.get(closest.node());
+            int[] links = node.links[level];
+            for (int i = 0; i < node.sizes[level]; i++) {
+                int neighbour = links[i];
+                if (!visited.mark(neighbour)) {
+                    continue;
+                }
+                float similarity = similarity(query, nodes.get(neighbour));
+                if (results.size() < ef || similarity > results.peek().similarity()) {
+                    Candidate candidate = new Candidate(neighbour, similarity);
+                    candidates.add(candidate);
+                    results.add(candidate);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbour selection heuristic: keep a candidate only if it is closer to the base node
+     * than to any neighbour already selected, which keeps the graph navigable across clusters.
+     */
+    private List<Candidate> selectNeighbours(PriorityQueue<Candidate> found, int max) {
+        List<Candidate> ordered = new ArrayList<>(found);
+        ordered.sort(Candidate.BY_SIMILARITY_DESC);
+
+        List<Candidate> selected = new ArrayList<>(max);
+        for (Candidate candidate : ordered) {
+            if (selected.size() >= max) {
+                break;
+            }
+            Node node = nodes.get(candidate.node());
+            boolean diverse = true;
+            for (Candidate chosen : selected) {
+                if (similarity(node, nodes.get(chosen.node())) > candidate.similarity()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+            }
+        }
+        return selected;
+    }
+
+    private void connectBack(int target, int newNode, int level) {
+        Node node = nodes.get(target);
+        int max = level == 0 ? maxConnectionsLevelZero : maxConnections;
+        if (node.sizes[level] < max) {
+            node.link(level, newNode);
+            return;
+        }
+
+        PriorityQueue<Candidate> pool = new PriorityQueue<>(Candidate.BY_SIMILARITY_ASC);
+        pool.add(new Candidate(newNode, similarity(node, nodes.get(newNode))));
+        for (int i = 0; i < node.sizes[level]; i++) {
+            int existing = node.links[level][i];
+            pool.add(new Candidate(existing, similarity(node, nodes.get(existing))));
+        }
+
+        List<Candidate> kept = selectNeighbours(pool, max);
+        node.sizes[level] = 0;
+        for (Candidate candidate : kept) {
+            node.link(level, candidate.node());
+        }
+    }
+
+    private int randomLevel() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        return (int) Math.floor(-Math.log(Math.max(r, Double.MIN_VALUE)) * levelMultiplier);
+    }
+
+    private static float similarity(float[] query, Node node) {
+        return node.quantized != null ? node.quantized.similarity(query) : dot(query, node.vector);
+    }
+
+    private static float similarity(Node a, Node b) {
+        return a.quantized != null ? a.quantized.similarity(b.quantized) : dot(a.vector, b.vector);
+    }
+
+    /**
+     * Dot product of two vectors of equal length; the cosine similarity of normalized vectors.
+     */
+    public static float dot(float[] a, float[] b) {
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns a unit-length copy of {@code vector}, or an unchanged copy of a zero vector.
+     */
+    public static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] normalized = Arrays.copyOf(vector, vector.length);
+        if (norm == 0) {
+            return normalized;
+        }
+        float inverse = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < normalized.length; i++) {
+            normalized[i] *= inverse;
+        }
+        return normalized;
+    }
+
+    private static final class Node {
+        final String id;
+        // Exactly one of the two is set, depending on the encoding
+        final float[] vector;
+        final QuantizedVector quantized;
+        final int[][] links;
+        final int[] sizes;
+        boolean deleted;
+
+        Node(String id, float[] vector, QuantizedVector quantized, int level, int maxConnections,
+             int maxConnectionsLevelZero) {
+            this.id = id;
+            this.vector = vector;
+            this.quantized = quantized;
+            this.links = new int[level + 1][];
+            this.sizes = new int[level + 1];
+            for (int l = 0; l <= level; l++) {
+                links[l] = new int[l == 0 ? maxConnectionsLevelZero : maxConnections];
+            }
+        }
+
+        void link(int level, int target) {
+            if (sizes[level] < links[level].length) {
+                links[level][sizes[level]++] = target;
+            }
+        }
+    }
+
+    private record Candidate(int node, float similarity) {
+        static final Comparator<Candidate> BY_SIMILARITY_DESC =
+                (a, b) -> Float.compare(b.similarity, a.similarity);
+        static final Comparator<Candidate> BY_SIMILARITY_ASC =
+                (a, b) -> Float.compare(a.similarity, b.similarity);
+    }
+
+    /**
+     * Generation-stamped visited set, reused per thread to avoid allocating on every search.
+     */
+    private static final class VisitedMarks {
+        private int[] stamps = new int[0];
+        private int generation = 0;
+
+        void reset(int capacity) {
+            if (stamps.length < capacity || stamps.length > capacity * 4L + 64) {
+                // Also shrinks once a compaction leaves the marks far larger than the graph
+                stamps = new int[Math.max(capacity, Math.min(stamps.length * 2, capacity * 2))];
+                generation = 0;
+            }
+            generation++;
+            if (generation == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                generation = 1;
+            }
+        }
+
+        boolean mark(int node) {
+            if (stamps[node] == generation) {
+                return false;
+            }
+            stamps[node] = generation;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.online.lyrics.vector;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * {@link VectorStore} that answers similarity searches from an in-JVM {@link HnswIndex}.
+ * <p>
+ * Writes are persisted to the vector store collection so the index can be rebuilt on startup,
+ * and the collection stays usable by the Atlas vector store. Scores follow the Atlas cosine
+ * convention ({@code (1 + cosine) / 2}) so similarity thresholds are interchangeable.
+ * <p>
+ * With a quantized index the best {@code topK * oversampling} matches are rescored on the full-precision
+ * vectors of the collection before the similarity threshold is applied.
+ */
+@Slf4j
+public class HnswVectorStore implements VectorStore, QueryVectorSearch, VectorLookup {
+
+    private final EmbeddingModel embeddingModel;
+    private final LyricsVectorCollection vectorCollection;
+    private final HnswIndex index;
+    private final int oversampling;
+    private final Map<String, Document> documents = new ConcurrentHashMap<>();
+
+    public HnswVectorStore(EmbeddingModel embeddingModel, LyricsVectorCollection vectorCollection, HnswIndex index,
+                           int oversampling) {
+        this.embeddingModel = embeddingModel;
+        this.vectorCollection = vectorCollection;
+        this.index = index;
+        this.oversampling = Math.max(1, oversampling);
+    }
+
+    /**
+     * Builds the index from the vectors already stored in the collection.
+     */
+    public void load() {
+        long start = System.currentTimeMillis();
+        try {
+            int loaded = vectorCollection.forEach(vector -> indexVector(vector.id(), vector.content(),
+                    vector.metadata(), vector.embedding()));
+            log.info("Loaded {} vectors from '{}' into the HNSW index in {} ms",
+                    loaded, vectorCollection.getCollectionName(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Failed to load vectors from '{}', starting with an empty index",
+                    vectorCollection.getCollectionName(), e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "HnswVectorStore";
+    }
+
+    @Override
+    public void add(List<Document> docs) {
+        if (docs == null || docs.isEmpty()) {
+            return;
+        }
+
+        List<String> texts = docs.stream().map(Document::getText).toList();
+        List<float[]> embeddings = embeddingModel.embed(texts);
+
+        List<LyricsVectorCollection.StoredVector> stored = new ArrayList<>(docs.size());
+        for (int i = 0; i < docs.size(); i++) {
+            Document doc = docs.get(i);
+            stored.add(new LyricsVectorCollection.StoredVector(doc.getId(), doc.getText(),
+                    new HashMap<>(doc.getMetadata()), embeddings.get(i)));
+        }
+
+        vectorCollection.upsert(stored);
+        stored.forEach(vector -> indexVector(vector.id(), vector.content(), vector.metadata(), vector.embedding()));
+
+        log.debug("Indexed {} documents in the HNSW index (size {})", docs.size(), index.size());
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        if (idList == null || idList.isEmpty()) {
+            return;
+        }
+        vectorCollection.delete(idList);
+        idList.forEach(id -> {
+            index.remove(id);
+            documents.remove(id);
+        });
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        List<String> matching = documents.values().stream()
+                .filter(doc -> MetadataFilterEvaluator.matches(filterExpression, doc.getMetadata()))
+                .map(Document::getId)
+                .toList();
+        delete(matching);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        return similaritySearch(embeddingModel.embed(request.getQuery()), request);
+    }
+
+    @Override
+    public List<Document> similaritySearch(float[] queryVector, SearchRequest request) {
+        Predicate<String> filter = null;
+        if (request.hasFilterExpression()) {
+            Filter.Expression expression = request.getFilterExpression();
+            filter = id -> {
+                Document doc = documents.get(id);
+                return doc != null && MetadataFilterEvaluator.matches(expression, doc.getMetadata());
+            };
+        }
+
+        boolean rescore = index.encoding() != QuantizedVector.Encoding.FLOAT32;
+        List<HnswIndex.Match> matches = index.search(queryVector,
+                rescore ? request.getTopK() * oversampling : request.getTopK(), filter);
+        if (rescore) {
+            matches = rescore(queryVector, matches, request.getTopK());
+        }
+        if (matches.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Document> results = new ArrayList<>(matches.size());
+        for (HnswIndex.Match match : matches) {
+            double score = (1.0 + match.similarity()) / 2.0;
+            if (score < request.getSimilarityThreshold()) {
+                break;
+            }
+            Document stored = documents.get(match.id());
+            if (stored == null) {
+                continue;
+            }
+
+            Map<String, Object> metadata = new HashMap<>(stored.getMetadata());
+            metadata.put("distance", 1.0 - score);
+            results.add(Document.builder()
+                    .id(stored.getId())
+                    .text(stored.getText())
+                    .metadata(metadata)
+                    .score(score)
+                    .build());
+        }
+        return results;
+    }
+
+    /**
+     * Replaces the approximate similarities of quantized matches with exact ones computed on the stored
+     * float vectors, in one lookup, and keeps the best {@code k}. Matches keep their approximate similarity
+     * if their vector cannot be read.
+     */
+    private List<HnswIndex.Match> rescore(float[] queryVector, List<HnswIndex.Match> matches, int k) {
+        if (matches.isEmpty()) {
+            return matches;
+        }
+        Map<String, float[]> exact;
+        try {
+            exact = vectorCollection.vectors(matches.stream().map(HnswIndex.Match::id).toList());
+        } catch (Exception e) {
+            log.warn("Failed to read vectors for rescoring, keeping approximate similarities: {}", e.getMessage());
+            return matches.size() > k ? matches.subList(0, k) : matches;
+        }
+
+        float[] normalizedQuery = HnswIndex.normalize(queryVector);
+        List<HnswIndex.Match> rescored = new ArrayList<>(matches.size());
+        for (HnswIndex.Match match : matches) {
+            float[] vector = exact.get(match.id());
+            rescored.add(vector == null ? match
+                    : new HnswIndex.Match(match.id(), HnswIndex.dot(normalizedQuery, HnswIndex.normalize(vector))));
+        }
+        rescored.sort(Comparator.comparingDouble(HnswIndex.Match::similarity).reversed());
+        return rescored.size() > k ? rescored.subList(0, k) : rescored;
+    }
+
+    @Override
+    public Map<String, float[]> vectors(Collection<String> ids) {
+        Map<String, float[]> vectors = new HashMap<>();
+        for (String id : ids) {
+            float[] vector = index.vector(id);
+            if (vector != null) {
+                vectors.put(id, vector);
+            }
+        }
+        return vectors;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    private void indexVector(String id, String content, Map<String, Object> metadata, float[] embedding) {
+        documents.put(id, Document.builder()
+                .id(id)
+                .text(content != null ? content : "")
+                .metadata(metadata)
+                .build());
+        index.add(id, embedding);
+    }
+}
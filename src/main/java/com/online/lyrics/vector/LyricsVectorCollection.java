@@ -0,0 +1,227 @@
+package com.online.lyrics.vector;
+
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Direct access to the vector store collection ({@code lyrics_vector_store}) using the same
+ * document layout as the MongoDB Atlas vector store: {@code _id}, {@code content},
+ * {@code metadata} and the embedding under the configured path.
+ * <p>
+ * Embeddings are written as BSON binary vectors (subtype 9, float32), 4 bytes per component instead of a
+ * boxed array of doubles; Atlas Vector Search indexes them like arrays. Embeddings stored as arrays, and
+ * int8 binary vectors, are still read. Entries written here also carry {@code updatedAt}, so local stores
+ * can pick up vectors written since they last read the collection.
+ */
+@Slf4j
+@Component
+public class LyricsVectorCollection implements VectorLookup {
+
+    private static final String ID_FIELD = "_id";
+    private static final String CONTENT_FIELD = "content";
+    private static final String METADATA_FIELD = "metadata";
+    private static final String UPDATED_AT_FIELD = "updatedAt";
+    private static final byte VECTOR_SUBTYPE = 9;
+    private static final byte FLOAT32_DTYPE = 0x27;
+    private static final byte INT8_DTYPE = 0x03;
+    // dtype and padding bytes in front of the vector data
+    private static final int VECTOR_HEADER_BYTES = 2;
+
+    private final MongoTemplate mongoTemplate;
+    private final String collectionName;
+    private final String embeddingPath;
+
+    public LyricsVectorCollection(MongoTemplate mongoTemplate,
+                                  @Value("${spring.ai.vectorstore.mongodb.collection-name:vector_store}") String collectionName,
+                                  @Value("${spring.ai.vectorstore.mongodb.path-name:embedding}") String embeddingPath) {
+        this.mongoTemplate = mongoTemplate;
+        this.collectionName = collectionName;
+        this.embeddingPath = embeddingPath;
+    }
+
+    /**
+     * A stored vector entry.
+     */
+    public record StoredVector(String id, String content, Map<String, Object> metadata, float[] embedding) {
+    }
+
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    public String getEmbeddingPath() {
+        return embeddingPath;
+    }
+
+    /**
+     * Streams every stored vector through the consumer using a server-side cursor.
+     *
+     * @return the number of entries read
+     */
+    public int forEach(Consumer<StoredVector> consumer) {
+        return forEach(new Document(), consumer);
+    }
+
+    /**
+     * Like {@link #forEach(Consumer)}, for the entries written through {@link #upsert} after {@code since}.
+     */
+    public int forEachUpdatedSince(Instant since, Consumer<StoredVector> consumer) {
+        return forEach(new Document(UPDATED_AT_FIELD, new Document("$gt", Date.from(since))), consumer);
+    }
+
+    /**
+     * Creates the index that {@link #forEachUpdatedSince} queries, if missing.
+     */
+    public void ensureUpdatedAtIndex() {
+        mongoTemplate.indexOps(collectionName).ensureIndex(new Index().on(UPDATED_AT_FIELD, Sort.Direction.ASC));
+    }
+
+    public long count() {
+        return mongoTemplate.getCollection(collectionName).countDocuments();
+    }
+
+    private int forEach(Document query, Consumer<StoredVector> consumer) {
+        int count = 0;
+        for (Document document : mongoTemplate.getCollection(collectionName).find(query)) {
+            StoredVector vector = toStoredVector(document);
+            if (vector.embedding() == null) {
+                log.warn("Skipping vector entry {} without embedding", vector.id());
+                continue;
+            }
+            consumer.accept(vector);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Inserts or replaces the given entries by id.
+     */
+    public void upsert(List<StoredVector> vectors) {
+        if (vectors.isEmpty()) {
+            return;
+        }
+
+        List<WriteModel<Document>> writes = new ArrayList<>(vectors.size());
+        Date updatedAt = new Date();
+        for (StoredVector vector : vectors) {
+            writes.add(new ReplaceOneModel<>(
+                    new Document(ID_FIELD, vector.id()),
+                    toBson(vector).append(UPDATED_AT_FIELD, updatedAt),
+                    new ReplaceOptions().upsert(true)));
+        }
+        mongoTemplate.getCollection(collectionName).bulkWrite(writes);
+    }
+
+    @Override
+    public Map<String, float[]> vectors(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, float[]> vectors = new HashMap<>();
+        for (Document document : mongoTemplate.getCollection(collectionName)
+                .find(new Document(ID_FIELD, new Document("$in", new ArrayList<>(ids))))
+                .projection(new Document(embeddingPath, 1))) {
+            float[] embedding = toFloatArray(document.get(embeddingPath));
+            if (embedding != null) {
+                vectors.put(document.get(ID_FIELD).toString(), embedding);
+            }
+        }
+        return vectors;
+    }
+
+    public void delete(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        mongoTemplate.getCollection(collectionName)
+                .deleteMany(new Document(ID_FIELD, new Document("$in", new ArrayList<>(ids))));
+    }
+
+    private Document toBson(StoredVector vector) {
+        return new Document(ID_FIELD, vector.id())
+                .append(CONTENT_FIELD, vector.content())
+                .append(METADATA_FIELD, new Document(vector.metadata()))
+                .append(embeddingPath, toBinaryVector(vector.embedding()));
+    }
+
+    private static Binary toBinaryVector(float[] embedding) {
+        ByteBuffer buffer = ByteBuffer.allocate(VECTOR_HEADER_BYTES + embedding.length * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(FLOAT32_DTYPE).put((byte) 0);
+        for (float component : embedding) {
+            buffer.putFloat(component);
+        }
+        return new Binary(VECTOR_SUBTYPE, buffer.array());
+    }
+
+    @SuppressWarnings("unchecked")
+    private StoredVector toStoredVector(Document document) {
+        Object id = document.get(ID_FIELD);
+        Object metadata = document.get(METADATA_FIELD);
+        Map<String, Object> metadataMap = metadata instanceof Map<?, ?> map
+                ? new HashMap<>((Map<String, Object>) map)
+                : new HashMap<>();
+
+        return new StoredVector(
+                id != null ? id.toString() : null,
+                document.getString(CONTENT_FIELD),
+                metadataMap,
+                toFloatArray(document.get(embeddingPath)));
+    }
+
+    private float[] toFloatArray(Object value) {
+        if (value instanceof Binary binary && binary.getType() == VECTOR_SUBTYPE) {
+            return fromBinaryVector(binary.getData());
+        }
+        if (!(value instanceof List<?> list)) {
+            return null;
+        }
+        float[] embedding = new float[list.size()];
+        for (int i = 0; i < embedding.length; i++) {
+            embedding[i] = ((Number) list.get(i)).floatValue();
+        }
+        return embedding;
+    }
+
+    private static float[] fromBinaryVector(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        byte dtype = buffer.get();
+        buffer.get();
+        if (dtype == FLOAT32_DTYPE) {
+            float[] embedding = new float[buffer.remaining() / Float.BYTES];
+            buffer.asFloatBuffer().get(embedding);
+            return embedding;
+        }
+        if (dtype == INT8_DTYPE) {
+            float[] embedding = new float[buffer.remaining()];
+            for (int i = 0; i < embedding.length; i++) {
+                embedding[i] = buffer.get();
+            }
+            return embedding;
+        }
+        // Packed-bit vectors cannot be turned back into similarities comparable with float queries
+        return null;
+    }
+}
@@ -0,0 +1,102 @@
+package com.online.lyrics.vector;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+/**
+ * Evaluates a Spring AI filter expression against a document's metadata map,
+ * for vector stores and indexes that keep their metadata in the JVM.
+ */
+public final class MetadataFilterEvaluator {
+
+    private MetadataFilterEvaluator() {
+    }
+
+    public static boolean matches(Filter.Expression expression, Map<String, Object> metadata) {
+        if (expression == null) {
+            return true;
+        }
+
+        return switch (expression.type()) {
+            case AND -> evaluate(expression.left(), metadata) && evaluate(expression.right(), metadata);
+            case OR -> evaluate(expression.left(), metadata) || evaluate(expression.right(), metadata);
+            case NOT -> !evaluate(expression.left(), metadata);
+            case EQ -> Objects.equals(normalize(value(expression.left(), metadata)), normalize(literal(expression.right())));
+            case NE -> !Objects.equals(normalize(value(expression.left(), metadata)), normalize(literal(expression.right())));
+            case GT -> compare(value(expression.left(), metadata), literal(expression.right()), c -> c > 0);
+            case GTE -> compare(value(expression.left(), metadata), literal(expression.right()), c -> c >= 0);
+            case LT -> compare(value(expression.left(), metadata), literal(expression.right()), c -> c < 0);
+            case LTE -> compare(value(expression.left(), metadata), literal(expression.right()), c -> c <= 0);
+            case IN -> contains(literal(expression.right()), value(expression.left(), metadata));
+            case NIN -> !contains(literal(expression.right()), value(expression.left(), metadata));
+            default -> throw new UnsupportedOperationException("Unsupported filter operator: " + expression.type());
+        };
+    }
+
+    private static boolean evaluate(Filter.Operand operand, Map<String, Object> metadata) {
+        if (operand instanceof Filter.Expression expression) {
+            return matches(expression, metadata);
+        }
+        if (operand instanceof Filter.Group group) {
+            return matches(group.content(), metadata);
+        }
+        throw new IllegalArgumentException("Expected a boolean operand but got: " + operand);
+    }
+
+    private static Object value(Filter.Operand operand, Map<String, Object> metadata) {
+        if (operand instanceof Filter.Key key) {
+            String name = key.key();
+            if (name.length() > 1 && (name.startsWith("\"") || name.startsWith("'"))) {
+                name = name.substring(1, name.length() - 1);
+            }
+            return metadata.get(name);
+        }
+        throw new IllegalArgumentException("Expected a metadata key but got: " + operand);
+    }
+
+    private static Object literal(Filter.Operand operand) {
+        if (operand instanceof Filter.Value value) {
+            return value.value();
+        }
+        throw new IllegalArgumentException("Expected a literal value but got: " + operand);
+    }
+
+    private static boolean contains(Object candidates, Object actual) {
+        if (candidates instanceof Collection<?> collection) {
+            Object normalized = normalize(actual);
+            return collection.stream().anyMatch(candidate -> Objects.equals(normalize(candidate), normalized));
+        }
+        return Objects.equals(normalize(candidates), normalize(actual));
+    }
+
+    /**
+     * Range comparisons never match a missing value, as in MongoDB, where {@code $lt} does not
+     * match documents without the field.
+     */
+    private static boolean compare(Object actual, Object expected, IntPredicate test) {
+        return actual != null && expected != null && test.test(compare(actual, expected));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Object actual, Object expected) {
+        if (actual instanceof Number a && expected instanceof Number b) {
+            return Double.compare(a.doubleValue(), b.doubleValue());
+        }
+        if (actual instanceof Comparable comparable && actual.getClass().isInstance(expected)) {
+            return comparable.compareTo(expected);
+        }
+        return actual.toString().compareTo(expected.toString());
+    }
+
+    private static Object normalize(Object value) {
+        // Integers read back from Mongo may come back as Long or Double
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,198 @@
+package com.online.lyrics.vector;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Compact encoding of a normalized embedding.
+ * <ul>
+ *     <li>{@link Encoding#FLOAT32}: 4 bytes per component, lossless.</li>
+ *     <li>{@link Encoding#INT8}: 1 byte per component, scalar-quantized between the vector's min and max
+ *     ({@code x ≈ (q + 128) * scale + offset}).</li>
+ *     <li>{@link Encoding#BINARY}: 1 bit per component (the sign), compared by Hamming distance.
+ *     Only a coarse estimate; use it to pre-select candidates for rescoring.</li>
+ * </ul>
+ * Vectors are L2-normalized before encoding so that dot products approximate cosine similarity.
+ * Equality compares the encoded bytes, not the array reference.
+ *
+ * @param componentSum sum of the unsigned quantized components, precomputed for INT8 dot products
+ */
+public record QuantizedVector(Encoding encoding, int dimensions, byte[] data, float scale, float offset,
+                              long componentSum) {
+
+    public enum Encoding { FLOAT32, INT8, BINARY }
+
+    public static QuantizedVector encode(float[] vector, Encoding encoding) {
+        float[] normalized = HnswIndex.normalize(vector);
+        return switch (encoding) {
+            case FLOAT32 -> float32(normalized);
+            case INT8 -> int8(normalized);
+            case BINARY -> binary(normalized);
+        };
+    }
+
+    /**
+     * Decodes back to floats; lossless for FLOAT32, approximate for INT8 and a ±1/√n sign vector for BINARY.
+     */
+    public float[] decode() {
+        float[] vector = new float[dimensions];
+        switch (encoding) {
+            case FLOAT32 -> ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+            case INT8 -> {
+                for (int i = 0; i < dimensions; i++) {
+                    vector[i] = (data[i] + 128) * scale + offset;
+                }
+            }
+            case BINARY -> {
+                float magnitude = (float) (1.0 / Math.sqrt(dimensions));
+                for (int i = 0; i < dimensions; i++) {
+                    vector[i] = bit(data, i) ? magnitude : -magnitude;
+                }
+            }
+        }
+        return vector;
+    }
+
+    /**
+     * Approximate cosine similarity between a full-precision query and this vector.
+     * The query is normalized by the caller (see {@link HnswIndex#normalize}).
+     */
+    public float similarity(float[] normalizedQuery) {
+        checkDimensions(normalizedQuery.length);
+        return switch (encoding) {
+            case FLOAT32 -> HnswIndex.dot(normalizedQuery, decode());
+            case INT8 -> {
+                // sum x_i * ((q_i + 128) * scale + offset) = scale * sum x_i * q'_i + offset * sum x_i
+                float weighted = 0f;
+                float querySum = 0f;
+                for (int i = 0; i < dimensions; i++) {
+                    weighted += normalizedQuery[i] * (data[i] + 128);
+                    querySum += normalizedQuery[i];
+                }
+                yield scale * weighted + offset * querySum;
+            }
+            case BINARY -> similarity(binary(normalizedQuery));
+        };
+    }
+
+    /**
+     * Approximate cosine similarity between two vectors of the same encoding, computed on the
+     * quantized representation: integer dot products for INT8, Hamming distance for BINARY.
+     */
+    public float similarity(QuantizedVector other) {
+        if (other.encoding != encoding) {
+            throw new IllegalArgumentException("Cannot compare " + encoding + " with " + other.encoding);
+        }
+        checkDimensions(other.dimensions);
+
+        return switch (encoding) {
+            case FLOAT32 -> HnswIndex.dot(decode(), other.decode());
+            case INT8 -> {
+                long products = 0;
+                for (int i = 0; i < dimensions; i++) {
+                    products += (long) (data[i] + 128) * (other.data[i] + 128);
+                }
+                yield (float) (scale * other.scale * products
+                        + scale * other.offset * componentSum
+                        + other.scale * offset * other.componentSum
+                        + (double) dimensions * offset * other.offset);
+            }
+            // Sign-random-projection estimate: the fraction of differing bits approximates angle / pi
+            case BINARY -> (float) Math.cos(Math.PI * hammingDistance(other) / dimensions);
+        };
+    }
+
+    public int hammingDistance(QuantizedVector other) {
+        ByteBuffer a = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer b = ByteBuffer.wrap(other.data).order(ByteOrder.LITTLE_ENDIAN);
+        int distance = 0;
+        while (a.remaining() >= Long.BYTES) {
+            distance += Long.bitCount(a.getLong() ^ b.getLong());
+        }
+        while (a.hasRemaining()) {
+            distance += Integer.bitCount((a.get() ^ b.get()) & 0xFF);
+        }
+        return distance;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof QuantizedVector other
+                && encoding == other.encoding
+                && dimensions == other.dimensions
+                && Float.compare(scale, other.scale) == 0
+                && Float.compare(offset, other.offset) == 0
+                && componentSum == other.componentSum
+                && Arrays.equals(data, other.data);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = encoding.hashCode();
+        result = 31 * result + dimensions;
+        result = 31 * result + Arrays.hashCode(data);
+        result = 31 * result + Float.hashCode(scale);
+        result = 31 * result + Float.hashCode(offset);
+        return 31 * result + Long.hashCode(componentSum);
+    }
+
+    @Override
+    public String toString() {
+        return "QuantizedVector[encoding=" + encoding + ", dimensions=" + dimensions
+                + ", bytes=" + data.length + "]";
+    }
+
+    /**
+     * Encoded size in bytes, excluding the fixed per-vector header fields.
+     */
+    public int sizeInBytes() {
+        return data.length;
+    }
+
+    private static QuantizedVector float32(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return new QuantizedVector(Encoding.FLOAT32, vector.length, buffer.array(), 1f, 0f, 0);
+    }
+
+    private static QuantizedVector int8(float[] vector) {
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (float v : vector) {
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        float scale = max > min ? (max - min) / 255f : 1f;
+
+        byte[] data = new byte[vector.length];
+        long componentSum = 0;
+        for (int i = 0; i < vector.length; i++) {
+            int q = Math.round((vector[i] - min) / scale);
+            q = Math.max(0, Math.min(255, q));
+            data[i] = (byte) (q - 128);
+            componentSum += q;
+        }
+        return new QuantizedVector(Encoding.INT8, vector.length, data, scale, min, componentSum);
+    }
+
+    private static QuantizedVector binary(float[] vector) {
+        byte[] data = new byte[(vector.length + 7) / 8];
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] > 0) {
+                data[i >> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+        return new QuantizedVector(Encoding.BINARY, vector.length, data, 1f, 0f, 0);
+    }
+
+    private static boolean bit(byte[] data, int index) {
+        return (data[index >> 3] & (1 << (index & 7))) != 0;
+    }
+
+    private void checkDimensions(int other) {
+        if (other != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + other);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.online.lyrics.vector;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.util.List;
+
+/**
+ * Similarity search with a precomputed query embedding, so callers can reuse
+ * embeddings instead of sending the query text to the embedding model again.
+ */
+public interface QueryVectorSearch {
+
+    /**
+     * Runs the search described by {@code request} using {@code queryVector};
+     * the query text of the request is ignored.
+     */
+    List<Document> similaritySearch(float[] queryVector, SearchRequest request);
+}
@@ -0,0 +1,336 @@
+package com.online.lyrics.vector;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntPredicate;
+
+/**
+ * {@link VectorStore} that answers similarity searches by scanning a memory-mapped {@link VectorSegment}.
+ * <p>
+ * The segment is written from the vector store collection and only its header lives on the heap. Vectors
+ * added after the segment was written are kept in a small in-heap delta and merged into the results;
+ * once the delta reaches {@code maxDelta} documents the segment is rewritten from the collection in the
+ * background. Searches and writes continue on the old segment and delta meanwhile.
+ * <p>
+ * Vectors written to the collection since the segment, by this node before a restart or by other nodes,
+ * are read into the delta when the segment is opened and every {@code refreshInterval} after that.
+ * A segment found out of date on startup is also rewritten in the background, which drops vectors
+ * deleted since; deletions made by other nodes are applied at the next rewrite.
+ * <p>
+ * Segment hits carry the stored metadata but no text. The LLM re-ranker only reads metadata; the local
+ * re-ranker ({@code lyrics.rerank.strategy=local} or {@code auto}) then scores on vector similarity, mood
+ * words in the title and metadata only, without the lyrics.
+ * Scores follow the Atlas cosine convention, like {@link HnswVectorStore}.
+ */
+@Slf4j
+public class SegmentVectorStore implements VectorStore, QueryVectorSearch, AutoCloseable {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    // Vectors are read back this far before the last catch-up, as other nodes stamp them with their own clocks
+    private static final Duration CLOCK_SKEW_MARGIN = Duration.ofMinutes(1);
+
+    private final EmbeddingModel embeddingModel;
+    private final LyricsVectorCollection vectorCollection;
+    private final Path segmentPath;
+    private final QuantizedVector.Encoding encoding;
+    private final int oversampling;
+    private final int maxDelta;
+    private final Duration refreshInterval;
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("vector-segment-refresh").daemon().factory());
+
+    private volatile VectorSegment segment;
+    private volatile Instant caughtUpTo;
+    private final Map<String, DeltaEntry> delta = new ConcurrentHashMap<>();
+    private final Set<String> deleted = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private record DeltaEntry(Document document, float[] embedding) {
+    }
+
+    public SegmentVectorStore(EmbeddingModel embeddingModel, LyricsVectorCollection vectorCollection,
+                              Path segmentPath, QuantizedVector.Encoding encoding, int oversampling, int maxDelta,
+                              Duration refreshInterval) {
+        this.embeddingModel = embeddingModel;
+        this.vectorCollection = vectorCollection;
+        this.segmentPath = segmentPath;
+        this.encoding = encoding;
+        this.oversampling = oversampling;
+        this.maxDelta = maxDelta;
+        this.refreshInterval = refreshInterval;
+    }
+
+    /**
+     * Opens the segment file, writing it from the collection first if it does not exist or cannot be read.
+     * An existing segment is caught up with the collection and rewritten in the background if it is out of date.
+     */
+    public void load() {
+        try {
+            vectorCollection.ensureUpdatedAtIndex();
+        } catch (Exception e) {
+            log.warn("Could not create the updatedAt index of '{}': {}", vectorCollection.getCollectionName(),
+                    e.getMessage());
+        }
+
+        if (!openExisting()) {
+            caughtUpTo = Instant.now();
+            rebuild();
+        }
+        long intervalMillis = refreshInterval.toMillis();
+        refresher.scheduleWithFixedDelay(this::refresh, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private boolean openExisting() {
+        if (!Files.exists(segmentPath)) {
+            return false;
+        }
+        try {
+            VectorSegment opened = VectorSegment.open(segmentPath);
+            segment = opened;
+            int newer = catchUp(opened.writtenAt());
+            log.info("Opened vector segment '{}' with {} {} vectors, {} vectors written since",
+                    segmentPath, opened.count(), opened.encoding(), newer);
+            if (newer > 0 || vectorCollection.count() != opened.count()) {
+                rebuildInBackground();
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not open vector segment '{}', rewriting it: {}", segmentPath, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Reads the vectors written to the collection since {@code since} into the delta.
+     *
+     * @return the number of vectors read
+     */
+    private synchronized int catchUp(Instant since) {
+        Instant start = Instant.now();
+        int read = vectorCollection.forEachUpdatedSince(since.minus(CLOCK_SKEW_MARGIN), vector -> {
+            Document document = Document.builder().id(vector.id()).text("").metadata(vector.metadata()).build();
+            delta.put(vector.id(), new DeltaEntry(document, HnswIndex.normalize(vector.embedding())));
+            deleted.remove(vector.id());
+        });
+        caughtUpTo = start;
+        return read;
+    }
+
+    private void refresh() {
+        try {
+            catchUp(caughtUpTo);
+            if (delta.size() >= maxDelta) {
+                rebuildInBackground();
+            }
+        } catch (Exception e) {
+            log.warn("Failed to read new vectors from '{}': {}", vectorCollection.getCollectionName(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Rewrites the segment from the vector store collection and swaps it in, unless a rewrite is already running.
+     */
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            rewriteSegment();
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private void rebuildInBackground() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("vector-segment-rebuild").start(() -> {
+            try {
+                rewriteSegment();
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+    }
+
+    private void rewriteSegment() {
+        long start = System.currentTimeMillis();
+        // Everything in these snapshots is in the collection as it is about to be written; later writes stay
+        // in the delta and deletion set, which take precedence over the segment
+        Map<String, DeltaEntry> writtenDelta = new HashMap<>(delta);
+        Set<String> writtenDeletions = Set.copyOf(deleted);
+        try {
+            int written = VectorSegmentWriter.write(segmentPath, encoding, vectorCollection);
+            segment = VectorSegment.open(segmentPath);
+            writtenDelta.forEach(delta::remove);
+            deleted.removeAll(writtenDeletions);
+            log.info("Wrote {} vectors from '{}' to segment '{}' in {} ms",
+                    written, vectorCollection.getCollectionName(), segmentPath, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Failed to write vector segment '{}'", segmentPath, e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "SegmentVectorStore";
+    }
+
+    @Override
+    public void add(List<Document> docs) {
+        if (docs == null || docs.isEmpty()) {
+            return;
+        }
+
+        // Embedding is the slow part; concurrent batches embed in parallel and only the writes are serialized
+        List<String> texts = docs.stream().map(Document::getText).toList();
+        List<float[]> embeddings = embeddingModel.embed(texts);
+
+        List<LyricsVectorCollection.StoredVector> stored = new ArrayList<>(docs.size());
+        for (int i = 0; i < docs.size(); i++) {
+            Document doc = docs.get(i);
+            stored.add(new LyricsVectorCollection.StoredVector(doc.getId(), doc.getText(),
+                    new HashMap<>(doc.getMetadata()), embeddings.get(i)));
+        }
+
+        synchronized (this) {
+            vectorCollection.upsert(stored);
+            for (LyricsVectorCollection.StoredVector vector : stored) {
+                Document document = Document.builder().id(vector.id()).text("").metadata(vector.metadata()).build();
+                delta.put(vector.id(), new DeltaEntry(document, HnswIndex.normalize(vector.embedding())));
+                deleted.remove(vector.id());
+            }
+        }
+
+        if (delta.size() >= maxDelta) {
+            rebuildInBackground();
+        }
+    }
+
+    @Override
+    public synchronized void delete(List<String> idList) {
+        if (idList == null || idList.isEmpty()) {
+            return;
+        }
+        vectorCollection.delete(idList);
+        idList.forEach(id -> {
+            delta.remove(id);
+            deleted.add(id);
+        });
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        List<String> matching = new ArrayList<>();
+        delta.values().stream()
+                .filter(entry -> MetadataFilterEvaluator.matches(filterExpression, entry.document().getMetadata()))
+                .forEach(entry -> matching.add(entry.document().getId()));
+
+        VectorSegment current = segment;
+        if (current != null) {
+            for (int entry = 0; entry < current.count(); entry++) {
+                if (MetadataFilterEvaluator.matches(filterExpression, metadata(current, entry))) {
+                    matching.add(current.id(entry));
+                }
+            }
+        }
+        delete(matching);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        return similaritySearch(embeddingModel.embed(request.getQuery()), request);
+    }
+
+    @Override
+    public List<Document> similaritySearch(float[] queryVector, SearchRequest request) {
+        Filter.Expression filter = request.hasFilterExpression() ? request.getFilterExpression() : null;
+        List<Document> candidates = new ArrayList<>();
+
+        VectorSegment current = segment;
+        if (current != null && current.count() > 0) {
+            IntPredicate accept = entry -> {
+                String id = current.id(entry);
+                if (deleted.contains(id) || delta.containsKey(id)) {
+                    return false;
+                }
+                return filter == null || MetadataFilterEvaluator.matches(filter, metadata(current, entry));
+            };
+            for (VectorSegment.Hit hit : current.search(queryVector, request.getTopK(), oversampling, accept)) {
+                candidates.add(toDocument(current.id(hit.entry()), "", metadata(current, hit.entry()),
+                        hit.similarity()));
+            }
+        }
+
+        float[] normalizedQuery = HnswIndex.normalize(queryVector);
+        for (DeltaEntry entry : delta.values()) {
+            Document document = entry.document();
+            if (filter == null || MetadataFilterEvaluator.matches(filter, document.getMetadata())) {
+                candidates.add(toDocument(document.getId(), document.getText(), document.getMetadata(),
+                        HnswIndex.dot(normalizedQuery, entry.embedding())));
+            }
+        }
+
+        return candidates.stream()
+                .filter(doc -> doc.getScore() >= request.getSimilarityThreshold())
+                .sorted(Comparator.comparingDouble(Document::getScore).reversed())
+                .limit(request.getTopK())
+                .toList();
+    }
+
+    public int size() {
+        VectorSegment current = segment;
+        return (current != null ? current.count() : 0) + delta.size();
+    }
+
+    private static Document toDocument(String id, String text, Map<String, Object> storedMetadata, float similarity) {
+        double score = (1.0 + similarity) / 2.0;
+        Map<String, Object> metadata = new HashMap<>(storedMetadata);
+        metadata.put("distance", 1.0 - score);
+        return Document.builder()
+                .id(id)
+                .text(text)
+                .metadata(metadata)
+                .score(score)
+                .build();
+    }
+
+    private static Map<String, Object> metadata(VectorSegment segment, int entry) {
+        try {
+            return objectMapper.readValue(segment.metadataJson(entry), new TypeReference<>() {
+            });
+        } catch (IOException e) {
+            log.warn("Unreadable metadata for entry {} of segment '{}'", entry, segment.path());
+            return Map.of();
+        }
+    }
+}
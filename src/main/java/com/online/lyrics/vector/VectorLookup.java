@@ -0,0 +1,15 @@
+package com.online.lyrics.vector;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Lookup of stored embeddings by document id.
+ */
+public interface VectorLookup {
+
+    /**
+     * Returns the stored embeddings of the given document ids; ids without an embedding are left out.
+     */
+    Map<String, float[]> vectors(Collection<String> ids);
+}
@@ -0,0 +1,317 @@
+package com.online.lyrics.vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+
+/**
+ * Read-only, memory-mapped vector segment written by {@link VectorSegmentWriter}.
+ * <p>
+ * Layout (little endian):
+ * <pre>
+ * header (64 bytes)  magic "LSEG", version, encoding, dimensions, count,
+ *                    vector block offset, rescore block offset (0 if none), id offsets offset, id data offset,
+ *                    write start (epoch millis; vectors updated later may be missing)
+ * vector block       FLOAT32: count x dimensions floats
+ *                    INT8:    count x (scale float, offset float, dimensions bytes)
+ *                    BINARY:  count x ceil(dimensions / 8) sign-bit bytes
+ * rescore block      INT8 and BINARY segments: count x dimensions floats, used to rescore quantized candidates
+ * id offsets         (count + 1) longs, relative to the id data block
+ * id data            per entry: UTF-8 "id \0 metadata-json"
+ * </pre>
+ * Vectors are stored L2-normalized. Blocks are mapped in regions of whole vectors so segments may exceed 2 GB;
+ * nothing but the header is copied to the heap.
+ */
+public class VectorSegment {
+
+    static final int MAGIC = 0x4745534C; // "LSEG"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 64;
+    private static final long MAX_REGION_BYTES = Integer.MAX_VALUE - 8;
+
+    private final Path path;
+    private final QuantizedVector.Encoding encoding;
+    private final int dimensions;
+    private final int count;
+    private final Region vectors;
+    private final Region rescoreVectors;
+    private final MappedByteBuffer idOffsets;
+    private final Region idData;
+    private final Instant writtenAt;
+
+    private VectorSegment(Path path, QuantizedVector.Encoding encoding, int dimensions, int count,
+                          Region vectors, Region rescoreVectors, MappedByteBuffer idOffsets, Region idData,
+                          Instant writtenAt) {
+        this.path = path;
+        this.encoding = encoding;
+        this.dimensions = dimensions;
+        this.count = count;
+        this.vectors = vectors;
+        this.rescoreVectors = rescoreVectors;
+        this.idOffsets = idOffsets;
+        this.idData = idData;
+        this.writtenAt = writtenAt;
+    }
+
+    /**
+     * A hit: the entry position in the segment and its cosine similarity to the query.
+     */
+    public record Hit(int entry, float similarity) {
+    }
+
+    public static VectorSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a vector segment: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported vector segment version " + version + ": " + path);
+            }
+            QuantizedVector.Encoding encoding = QuantizedVector.Encoding.values()[header.getInt()];
+            int dimensions = header.getInt();
+            int count = Math.toIntExact(header.getLong());
+            long vectorOffset = header.getLong();
+            long rescoreOffset = header.getLong();
+            long idOffsetsOffset = header.getLong();
+            long idDataOffset = header.getLong();
+            Instant writtenAt = Instant.ofEpochMilli(header.getLong());
+
+            int stride = vectorStride(encoding, dimensions);
+            Region vectors = Region.map(channel, vectorOffset, count, stride);
+            Region rescoreVectors = rescoreOffset > 0
+                    ? Region.map(channel, rescoreOffset, count, dimensions * Float.BYTES)
+                    : null;
+            MappedByteBuffer idOffsets = map(channel, idOffsetsOffset, (long) (count + 1) * Long.BYTES);
+            long idDataSize = idOffsets.getLong(count * Long.BYTES);
+            Region idData = Region.mapBytes(channel, idDataOffset, idDataSize);
+
+            return new VectorSegment(path, encoding, dimensions, count, vectors, rescoreVectors, idOffsets, idData,
+                    writtenAt);
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public QuantizedVector.Encoding encoding() {
+        return encoding;
+    }
+
+    /**
+     * When writing the segment started; vectors updated after this may be missing from it.
+     */
+    public Instant writtenAt() {
+        return writtenAt;
+    }
+
+    public String id(int entry) {
+        String record = record(entry);
+        int separator = record.indexOf('\0');
+        return separator >= 0 ? record.substring(0, separator) : record;
+    }
+
+    public String metadataJson(int entry) {
+        String record = record(entry);
+        int separator = record.indexOf('\0');
+        return separator >= 0 ? record.substring(separator + 1) : "{}";
+    }
+
+    /**
+     * Brute-force top-k scan. For INT8 and BINARY segments the scan runs on the quantized vectors and the best
+     * {@code k * oversampling} candidates are rescored with the float vectors.
+     *
+     * @param accept called only for entries that would enter the result, to apply filters and deletions lazily
+     */
+    public List<Hit> search(float[] query, int k, int oversampling, IntPredicate accept) {
+        if (k <= 0 || count == 0) {
+            return List.of();
+        }
+        if (query.length != dimensions) {
+            throw new IllegalArgumentException("Expected query of " + dimensions
+                    + " dimensions but got " + query.length);
+        }
+
+        float[] normalized = HnswIndex.normalize(query);
+        boolean rescore = encoding != QuantizedVector.Encoding.FLOAT32 && rescoreVectors != null;
+        int candidates = rescore ? k * Math.max(1, oversampling) : k;
+
+        float querySum = 0f;
+        for (float v : normalized) {
+            querySum += v;
+        }
+        ByteBuffer queryBits = encoding == QuantizedVector.Encoding.BINARY
+                ? ByteBuffer.wrap(QuantizedVector.encode(normalized, encoding).data()).order(ByteOrder.LITTLE_ENDIAN)
+                : null;
+
+        PriorityQueue<Hit> best = new PriorityQueue<>(Comparator.comparingDouble(Hit::similarity));
+        for (int entry = 0; entry < count; entry++) {
+            float similarity = switch (encoding) {
+                case FLOAT32 -> floatSimilarity(vectors, normalized, entry);
+                case INT8 -> int8Similarity(normalized, querySum, entry);
+                case BINARY -> binarySimilarity(queryBits, entry);
+            };
+
+            if (best.size() >= candidates && similarity <= best.peek().similarity()) {
+                continue;
+            }
+            if (accept != null && !accept.test(entry)) {
+                continue;
+            }
+            best.add(new Hit(entry, similarity));
+            if (best.size() > candidates) {
+                best.poll();
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(best);
+        if (rescore) {
+            hits.replaceAll(hit -> new Hit(hit.entry(), floatSimilarity(rescoreVectors, normalized, hit.entry())));
+        }
+        hits.sort(Comparator.comparingDouble(Hit::similarity).reversed());
+        return hits.size() > k ? hits.subList(0, k) : hits;
+    }
+
+    static int vectorStride(QuantizedVector.Encoding encoding, int dimensions) {
+        return switch (encoding) {
+            case FLOAT32 -> dimensions * Float.BYTES;
+            case INT8 -> 2 * Float.BYTES + dimensions;
+            case BINARY -> (dimensions + 7) / 8;
+        };
+    }
+
+    private float floatSimilarity(Region region, float[] query, int entry) {
+        ByteBuffer buffer = region.buffer(entry);
+        int base = region.position(entry);
+        float sum = 0f;
+        for (int i = 0; i < dimensions; i++) {
+            sum += query[i] * buffer.getFloat(base + i * Float.BYTES);
+        }
+        return sum;
+    }
+
+    private float int8Similarity(float[] query, float querySum, int entry) {
+        ByteBuffer buffer = vectors.buffer(entry);
+        int base = vectors.position(entry);
+        float scale = buffer.getFloat(base);
+        float offset = buffer.getFloat(base + Float.BYTES);
+        int data = base + 2 * Float.BYTES;
+
+        float weighted = 0f;
+        for (int i = 0; i < dimensions; i++) {
+            weighted += query[i] * (buffer.get(data + i) + 128);
+        }
+        return scale * weighted + offset * querySum;
+    }
+
+    /**
+     * Sign-random-projection estimate from the Hamming distance, as in {@link QuantizedVector#similarity}.
+     */
+    private float binarySimilarity(ByteBuffer queryBits, int entry) {
+        ByteBuffer buffer = vectors.buffer(entry);
+        int base = vectors.position(entry);
+        int length = queryBits.capacity();
+        int distance = 0;
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            distance += Long.bitCount(buffer.getLong(base + i) ^ queryBits.getLong(i));
+        }
+        for (; i < length; i++) {
+            distance += Integer.bitCount((buffer.get(base + i) ^ queryBits.get(i)) & 0xFF);
+        }
+        return (float) Math.cos(Math.PI * distance / dimensions);
+    }
+
+    private String record(int entry) {
+        long start = idOffsets.getLong(entry * Long.BYTES);
+        long end = idOffsets.getLong((entry + 1) * Long.BYTES);
+        byte[] bytes = new byte[Math.toIntExact(end - start)];
+        idData.read(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long offset, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * A block mapped as one or more buffers, each holding a whole number of fixed-size records.
+     */
+    private static final class Region {
+        private final MappedByteBuffer[] buffers;
+        private final int recordsPerBuffer;
+        private final int stride;
+
+        private Region(MappedByteBuffer[] buffers, int recordsPerBuffer, int stride) {
+            this.buffers = buffers;
+            this.recordsPerBuffer = recordsPerBuffer;
+            this.stride = stride;
+        }
+
+        static Region map(FileChannel channel, long offset, int records, int stride) throws IOException {
+            if (records == 0) {
+                return new Region(new MappedByteBuffer[0], 1, stride);
+            }
+            int recordsPerBuffer = (int) Math.max(1, Math.min(records, MAX_REGION_BYTES / stride));
+            int bufferCount = (records + recordsPerBuffer - 1) / recordsPerBuffer;
+            MappedByteBuffer[] buffers = new MappedByteBuffer[bufferCount];
+            for (int i = 0; i < bufferCount; i++) {
+                int first = i * recordsPerBuffer;
+                int size = Math.min(recordsPerBuffer, records - first);
+                buffers[i] = VectorSegment.map(channel, offset + (long) first * stride, (long) size * stride);
+            }
+            return new Region(buffers, recordsPerBuffer, stride);
+        }
+
+        static Region mapBytes(FileChannel channel, long offset, long size) throws IOException {
+            int bufferCount = (int) ((size + MAX_REGION_BYTES - 1) / MAX_REGION_BYTES);
+            MappedByteBuffer[] buffers = new MappedByteBuffer[bufferCount];
+            for (int i = 0; i < bufferCount; i++) {
+                long start = i * MAX_REGION_BYTES;
+                buffers[i] = VectorSegment.map(channel, offset + start, Math.min(MAX_REGION_BYTES, size - start));
+            }
+            return new Region(buffers, (int) MAX_REGION_BYTES, 1);
+        }
+
+        ByteBuffer buffer(int record) {
+            return buffers[record / recordsPerBuffer];
+        }
+
+        int position(int record) {
+            return (record % recordsPerBuffer) * stride;
+        }
+
+        void read(long position, byte[] target) {
+            for (int i = 0; i < target.length; i++) {
+                long absolute = position + i;
+                target[i] = buffers[(int) (absolute / MAX_REGION_BYTES)].get((int) (absolute % MAX_REGION_BYTES));
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.online.lyrics.vector;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Streams vectors into a new {@link VectorSegment} file. Entries are appended one at a time so a whole
+ * collection can be written without holding it in memory; the header is completed on {@link #finish()}.
+ * The segment is written to a temporary file and moved into place atomically.
+ */
+public class VectorSegmentWriter implements AutoCloseable {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Path target;
+    private final Path temporary;
+    private final Path rescoreSpill;
+    private final Path idSpill;
+    private final Path offsetSpill;
+    private final QuantizedVector.Encoding encoding;
+    // Taken before any vector is read, so a vector updated during the write counts as newer than the segment
+    private final Instant writtenAt = Instant.now();
+
+    private final FileChannel channel;
+    private final DataOutputStream rescoreOut;
+    private final DataOutputStream idOut;
+    private final DataOutputStream offsetOut;
+    private final ByteBuffer vectorBuffer;
+    private final ByteBuffer littleEndian;
+
+    private int dimensions = -1;
+    private long count;
+    private long idBytes;
+    private boolean finished;
+
+    public VectorSegmentWriter(Path target, QuantizedVector.Encoding encoding) throws IOException {
+        this.target = target;
+        this.encoding = encoding;
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        this.temporary = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        this.rescoreSpill = Files.createTempFile(directory, target.getFileName().toString(), ".rescore");
+        this.idSpill = Files.createTempFile(directory, target.getFileName().toString(), ".ids");
+        this.offsetSpill = Files.createTempFile(directory, target.getFileName().toString(), ".offsets");
+
+        this.channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.channel.position(VectorSegment.HEADER_SIZE);
+        this.rescoreOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(rescoreSpill)));
+        this.idOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(idSpill)));
+        this.offsetOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(offsetSpill)));
+        this.vectorBuffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        this.littleEndian = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes the whole vector collection to a segment at {@code target}.
+     */
+    public static int write(Path target, QuantizedVector.Encoding encoding, LyricsVectorCollection collection)
+            throws IOException {
+        try (VectorSegmentWriter writer = new VectorSegmentWriter(target, encoding)) {
+            collection.forEach(stored -> {
+                try {
+                    writer.append(stored.id(), stored.embedding(), stored.metadata());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.finish();
+            return Math.toIntExact(writer.count);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public void append(String id, float[] embedding, Map<String, Object> metadata) throws IOException {
+        if (dimensions < 0) {
+            dimensions = embedding.length;
+        } else if (embedding.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got "
+                    + embedding.length + " for " + id);
+        }
+
+        QuantizedVector vector = QuantizedVector.encode(embedding, encoding);
+        if (encoding == QuantizedVector.Encoding.INT8) {
+            putFloat(vector.scale());
+            putFloat(vector.offset());
+        }
+        put(vector.data());
+        if (encoding != QuantizedVector.Encoding.FLOAT32) {
+            // Keep the float vector for rescoring quantized candidates
+            for (float v : HnswIndex.normalize(embedding)) {
+                littleEndian.clear();
+                littleEndian.putFloat(v);
+                rescoreOut.write(littleEndian.array(), 0, Float.BYTES);
+            }
+        }
+
+        byte[] record = (id + '\0' + toJson(metadata)).getBytes(StandardCharsets.UTF_8);
+        writeOffset(idBytes);
+        idOut.write(record);
+        idBytes += record.length;
+        count++;
+    }
+
+    /**
+     * Appends the rescore block and id table, writes the header and moves the segment into place.
+     */
+    public void finish() throws IOException {
+        flushVectors();
+        writeOffset(idBytes);
+        rescoreOut.close();
+        idOut.close();
+        offsetOut.close();
+
+        long rescoreOffset = 0;
+        if (encoding != QuantizedVector.Encoding.FLOAT32) {
+            rescoreOffset = channel.position();
+            transferFrom(rescoreSpill);
+        }
+
+        long idOffsetsOffset = channel.position();
+        transferFrom(offsetSpill);
+        long idDataOffset = channel.position();
+        transferFrom(idSpill);
+
+        ByteBuffer header = ByteBuffer.allocate(VectorSegment.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(VectorSegment.MAGIC)
+                .putInt(VectorSegment.VERSION)
+                .putInt(encoding.ordinal())
+                .putInt(Math.max(dimensions, 0))
+                .putLong(count)
+                .putLong(VectorSegment.HEADER_SIZE)
+                .putLong(rescoreOffset)
+                .putLong(idOffsetsOffset)
+                .putLong(idDataOffset)
+                .putLong(writtenAt.toEpochMilli());
+        header.flip();
+        channel.write(header, 0);
+        channel.force(true);
+        channel.close();
+
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        rescoreOut.close();
+        idOut.close();
+        offsetOut.close();
+        Files.deleteIfExists(rescoreSpill);
+        Files.deleteIfExists(idSpill);
+        Files.deleteIfExists(offsetSpill);
+        if (!finished) {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private void writeOffset(long offset) throws IOException {
+        littleEndian.clear();
+        littleEndian.putLong(offset);
+        offsetOut.write(littleEndian.array(), 0, Long.BYTES);
+    }
+
+    private void transferFrom(Path spill) throws IOException {
+        try (FileChannel source = FileChannel.open(spill, StandardOpenOption.READ)) {
+            long size = source.size();
+            long transferred = 0;
+            while (transferred < size) {
+                transferred += source.transferTo(transferred, size - transferred, channel);
+            }
+        }
+    }
+
+    private void putFloat(float value) throws IOException {
+        ensureCapacity(Float.BYTES);
+        vectorBuffer.putFloat(value);
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        int written = 0;
+        while (written < bytes.length) {
+            ensureCapacity(1);
+            int length = Math.min(vectorBuffer.remaining(), bytes.length - written);
+            vectorBuffer.put(bytes, written, length);
+            written += length;
+        }
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (vectorBuffer.remaining() < bytes) {
+            flushVectors();
+        }
+    }
+
+    private void flushVectors() throws IOException {
+        vectorBuffer.flip();
+        while (vectorBuffer.hasRemaining()) {
+            channel.write(vectorBuffer);
+        }
+        vectorBuffer.clear();
+    }
+
+    private static String toJson(Map<String, Object> metadata) {
+        try {
+            return objectMapper.writeValueAsString(metadata == null ? Map.of() : metadata);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Metadata is not serializable", e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.online.lyrics.component;
+
+import com.online.lyrics.component.AdaptiveRetrievalComponent.RetrievalPlan;
+import com.online.lyrics.model.SongFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveRetrievalComponentTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AdaptiveRetrievalComponent retrieval = new AdaptiveRetrievalComponent(meterRegistry, true,
+            0.6, 0.45, 0.05, 2, 0.05, 4, 0.2, 100);
+    private final List<RetrievalPlan> plans = new ArrayList<>();
+
+    @Test
+    void thresholdIsWidenedWithoutSearchingAgain() {
+        List<Document> hits = retrieval.retrieve("rainy day", SongFilter.NONE, 3,
+                search(0.62, 0.57, 0.52, 0.47));
+
+        assertThat(hits).extracting(Document::getId).containsExactly("0", "1", "2");
+        assertThat(plans).containsExactly(new RetrievalPlan(6, 0.45));
+        assertThat(meterRegistry.counter("lyrics.retrieval.widened").count()).isEqualTo(2);
+    }
+
+    @Test
+    void hitsAreCutAtTheFirstScoreCliffPastTheLimit() {
+        List<Document> hits = retrieval.retrieve("rainy day", SongFilter.NONE, 3,
+                search(0.9, 0.89, 0.88, 0.87, 0.7, 0.69));
+
+        assertThat(hits).extracting(Document::getId).containsExactly("0", "1", "2", "3");
+    }
+
+    @Test
+    void laterSearchesStartFromTheLearnedTopKAndThreshold() {
+        Function<RetrievalPlan, List<Document>> search = search(0.62, 0.57, 0.52, 0.47);
+        retrieval.retrieve("rainy day", SongFilter.NONE, 3, search);
+        retrieval.retrieve("rainy day", SongFilter.NONE, 3, search);
+
+        // Three hits kept for a limit of three, plus headroom; the widened threshold is reused
+        assertThat(plans).extracting(RetrievalPlan::topK).containsExactly(6, 4);
+        assertThat(meterRegistry.counter("lyrics.retrieval.widened").count()).isEqualTo(2);
+    }
+
+    @Test
+    void nonPositiveLimitsReturnNothingWithoutSearching() {
+        assertThat(retrieval.retrieve("rainy day", SongFilter.NONE, 0, search(0.9))).isEmpty();
+        assertThat(retrieval.retrieve("rainy day", SongFilter.NONE, -1, search(0.9))).isEmpty();
+        assertThat(plans).isEmpty();
+    }
+
+    /**
+     * A vector search over hits with the given descending scores, recording the plans it was run with.
+     */
+    private Function<RetrievalPlan, List<Document>> search(double... scores) {
+        return plan -> {
+            plans.add(plan);
+            List<Document> hits = new ArrayList<>();
+            for (int i = 0; i < scores.length && hits.size() < plan.topK(); i++) {
+                if (scores[i] >= plan.similarityThreshold()) {
+                    hits.add(Document.builder().id(Integer.toString(i)).text("lyrics").score(scores[i]).build());
+                }
+            }
+            return hits;
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package com.online.lyrics.component;
+
+import com.online.lyrics.vector.LyricsVectorCollection;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class DiversityPruningComponentTest {
+
+    // No stored embeddings: similarity comes from artist and title alone
+    private final DiversityPruningComponent pruning = new DiversityPruningComponent(mock(VectorStore.class),
+            mock(LyricsVectorCollection.class), new SimpleMeterRegistry(), true, 3, 0.5, 0.5);
+
+    @Test
+    void otherVersionsAndSongsOfPickedArtistsAreDropped() {
+        List<Document> candidates = List.of(
+                song("0", "Artist A", "Rain"),
+                song("1", "artist a ", "RAIN"),
+                song("2", "Artist A", "Sunshine"),
+                song("3", "Artist B", "Night"),
+                song("4", "Artist C", "Ocean"),
+                song("5", "Artist D", "Desert"));
+
+        assertThat(pruning.prune(candidates, 3)).extracting(Document::getId).containsExactly("0", "3", "4");
+    }
+
+    @Test
+    void candidatesWithinTheSizeAreKept() {
+        List<Document> candidates = List.of(
+                song("0", "Artist A", "Rain"),
+                song("1", "Artist A", "Rain"));
+
+        assertThat(pruning.prune(candidates, 3)).isSameAs(candidates);
+    }
+
+    private static Document song(String id, String artist, String title) {
+        return Document.builder()
+                .id(id)
+                .text(title)
+                .metadata(Map.of("artist", artist, "title", title))
+                .build();
+    }
+}
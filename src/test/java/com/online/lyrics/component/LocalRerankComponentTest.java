@@ -0,0 +1,30 @@
+package com.online.lyrics.component;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalRerankComponentTest {
+
+    private final LocalRerankComponent rerank = new LocalRerankComponent();
+
+    @Test
+    void moodLexiconMatchesOutrankSlightlyCloserVectors() {
+        Document party = song("party", "We dance all night, the party never stops, so much fun and joy", 0.70);
+        Document rain = song("rain", "Rain falls on the window and nothing else moves", 0.72);
+
+        List<Document> reranked = rerank.rerank("happy upbeat dance songs", List.of(rain, party));
+
+        assertThat(reranked).extracting(Document::getId).containsExactly("party", "rain");
+        assertThat((String) party.getMetadata().get("motivation")).contains("lyrics:");
+        assertThat((String) rain.getMetadata().get("motivation")).contains("semantically close");
+    }
+
+    private static Document song(String id, String lyrics, double score) {
+        return Document.builder().id(id).text(lyrics).metadata(new HashMap<>()).score(score).build();
+    }
+}
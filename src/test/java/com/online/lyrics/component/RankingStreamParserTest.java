@@ -0,0 +1,94 @@
+package com.online.lyrics.component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RankingStreamParserTest {
+
+    @Test
+    void itemsAreReturnedAsSoonAsTheyAreClosed() throws IOException {
+        RankingStreamParser parser = new RankingStreamParser(new JsonFactory());
+
+        assertThat(parser.feed("[{\"i\":2,\"s\":0.9}")).containsExactly(Map.of("i", 2, "s", 0.9));
+        assertThat(parser.feed(",{\"i\":1,")).isEmpty();
+        assertThat(parser.feed("\"s\":0.4}]")).containsExactly(Map.of("i", 1, "s", 0.4));
+        assertThat(parser.isComplete()).isTrue();
+    }
+
+    @Test
+    void tokensSplitAcrossChunksAreJoined() throws IOException {
+        String json = "[{\"i\":12,\"s\":0.875,\"m\":\"Slow, \\\"sad\\\" piano\"},{\"i\":3,\"s\":0.5}]";
+
+        // Every split point, including inside numbers, strings, escapes and field names
+        for (int split = 1; split < json.length(); split++) {
+            RankingStreamParser parser = new RankingStreamParser(new JsonFactory());
+            List<Map<String, Object>> items = new ArrayList<>(parser.feed(json.substring(0, split)));
+            items.addAll(parser.feed(json.substring(split)));
+
+            assertThat(items).as("split at %d", split).containsExactly(
+                    Map.of("i", 12, "s", 0.875, "m", "Slow, \"sad\" piano"),
+                    Map.of("i", 3, "s", 0.5));
+            assertThat(parser.isComplete()).isTrue();
+        }
+    }
+
+    @Test
+    void oneCharacterChunksAreParsed() throws IOException {
+        String json = "[{\"i\":1,\"s\":1.0},{\"i\":2,\"s\":0.25}]";
+        RankingStreamParser parser = new RankingStreamParser(new JsonFactory());
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (char c : json.toCharArray()) {
+            items.addAll(parser.feed(String.valueOf(c)));
+        }
+
+        assertThat(items).extracting(item -> item.get("i")).containsExactly(1, 2);
+    }
+
+    @Test
+    void markdownFenceAroundTheArrayIsSkipped() throws IOException {
+        RankingStreamParser parser = new RankingStreamParser(new JsonFactory());
+
+        assertThat(parser.feed("Here is the ranking:\n```js")).isEmpty();
+        assertThat(parser.feed("on\n[{\"i\":4,\"s\":0.7}]\n``")).containsExactly(Map.of("i", 4, "s", 0.7));
+        assertThat(parser.isComplete()).isTrue();
+        assertThat(parser.feed("`")).isEmpty();
+    }
+
+    @Test
+    void textAfterTheClosingBracketIsIgnored() throws IOException {
+        RankingStreamParser parser = new RankingStreamParser(new JsonFactory());
+
+        assertThat(parser.feed("[{\"i\":1,\"s\":0.3}] I ranked [the] songs {\"i\":9}"))
+                .containsExactly(Map.of("i", 1, "s", 0.3));
+        assertThat(parser.isComplete()).isTrue();
+        assertThat(parser.feed(", [{\"i\":2}]")).isEmpty();
+    }
+
+    @Test
+    void nestedValuesAreIgnoredAndDoNotLeakIntoItemFields() throws IOException {
+        RankingStreamParser parser = new RankingStreamParser(new JsonFactory());
+
+        List<Map<String, Object>> items = parser.feed(
+                "[{\"i\":1,\"tags\":[\"calm\",{\"s\":0.1}],\"extra\":{\"i\":99,\"m\":\"inner\"},\"s\":0.8},"
+                        + "[5,6],{\"i\":2,\"meta\":{\"deep\":{\"s\":0}}}]");
+
+        assertThat(items).containsExactly(Map.of("i", 1, "s", 0.8), Map.of("i", 2));
+        assertThat(parser.isComplete()).isTrue();
+    }
+
+    @Test
+    void incompleteArrayIsNotComplete() throws IOException {
+        RankingStreamParser parser = new RankingStreamParser(new JsonFactory());
+
+        assertThat(parser.feed("[{\"i\":1,\"s\":0.3},{\"i\":2")).containsExactly(Map.of("i", 1, "s", 0.3));
+        assertThat(parser.isComplete()).isFalse();
+    }
+}
@@ -0,0 +1,54 @@
+package com.online.lyrics.component;
+
+import com.online.lyrics.component.RerankCacheComponent.RankedSong;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RerankCacheComponentTest {
+
+    private final RerankCacheComponent cache = new RerankCacheComponent(new SimpleMeterRegistry(), true, 100,
+            Duration.ofHours(1));
+    private final List<Document> candidates = List.of(candidate("a"), candidate("b"), candidate("c"), candidate("d"));
+
+    @Test
+    void prefixOnlyServesLimitsItCovers() {
+        List<RankedSong> prefix = List.of(ranked("c"), ranked("a"));
+        cache.putPrefix("Sad songs", candidates, prefix);
+
+        assertThat(cache.get("sad songs", candidates, 2)).contains(prefix);
+        assertThat(cache.get("sad songs", candidates, 3)).isEmpty();
+    }
+
+    @Test
+    void completeRankingServesAnyLimitAndIsNotReplacedByAPrefix() {
+        List<RankedSong> ranking = List.of(ranked("c"), ranked("a"), ranked("d"), ranked("b"));
+        cache.put("sad songs", candidates, ranking);
+        cache.putPrefix("sad songs", candidates, List.of(ranked("b")));
+
+        assertThat(cache.get("sad songs", candidates, 10)).contains(ranking);
+    }
+
+    @Test
+    void candidateOrderDoesNotMatter() {
+        List<RankedSong> ranking = List.of(ranked("c"), ranked("a"), ranked("d"), ranked("b"));
+        cache.put("sad songs", candidates, ranking);
+
+        assertThat(cache.get("sad songs", candidates.reversed(), 4)).contains(ranking);
+        assertThat(cache.get("happy songs", candidates, 4)).isEmpty();
+    }
+
+    private static Document candidate(String songId) {
+        return Document.builder().id("doc-" + songId).text("lyrics").metadata(Map.of("songId", songId)).build();
+    }
+
+    private static RankedSong ranked(String songId) {
+        return new RankedSong(songId, 0.9, "Fits the mood");
+    }
+}
@@ -0,0 +1,149 @@
+package com.online.lyrics.loadtest;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Deterministic stand-in for the re-ranking LLM.
+ * <p>
+ * It reads the requested mood and the numbered songs of a re-ranking prompt and answers with a JSON ranking
+ * of every song, scored by a hash of the mood and the song line, so the same prompt always gets the same
+ * ranking. Motivations are added to as many leading items as the prompt asks for. Each call waits one
+ * {@link SimulatedLatency} sample plus {@code perOutputToken} for every generated token, since generation
+ * dominates LLM latency; streamed answers arrive chunk by chunk at the same pace. Tokens are counted at
+ * roughly four characters per token.
+ */
+public class FakeChatModel implements ChatModel {
+
+    private static final Pattern MOOD = Pattern.compile("fit the mood \"([^\"]*)\"");
+    private static final Pattern SONG_LINE = Pattern.compile("(?m)^(\\d+)\\|(.*)$");
+    private static final Pattern MOTIVATIONS = Pattern.compile("to the first (\\d+) items");
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int STREAM_CHUNK_TOKENS = 4;
+
+    private final SimulatedLatency latency;
+    private final Duration perOutputToken;
+    // Generation sleeps, so it runs on virtual threads rather than a bounded Reactor pool
+    private final Scheduler generationScheduler = Schedulers.fromExecutor(Executors.newVirtualThreadPerTaskExecutor());
+
+    public FakeChatModel(SimulatedLatency latency, Duration perOutputToken) {
+        this.latency = latency;
+        this.perOutputToken = perOutputToken;
+    }
+
+    private record RankedDoc(int index, double score) {
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        String text = prompt.getContents();
+        String content = answer(text);
+        int completionTokens = content.length() / CHARS_PER_TOKEN;
+
+        latency.await();
+        sleep(perOutputToken.multipliedBy(completionTokens));
+        return response(content, text.length() / CHARS_PER_TOKEN, completionTokens);
+    }
+
+    /**
+     * Streams the same answer as {@link #call} in chunks of {@code STREAM_CHUNK_TOKENS} tokens, wrapped in a
+     * markdown fence like many models do. Cancelling the subscription stops the generation.
+     */
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        String text = prompt.getContents();
+        String content = "```json\n" + answer(text) + "\n```";
+        int chunkLength = STREAM_CHUNK_TOKENS * CHARS_PER_TOKEN;
+
+        return Flux.<ChatResponse>create(sink -> {
+            try {
+                latency.await();
+                for (int start = 0; start < content.length() && !sink.isCancelled(); start += chunkLength) {
+                    String chunk = content.substring(start, Math.min(start + chunkLength, content.length()));
+                    sleep(perOutputToken.multipliedBy(STREAM_CHUNK_TOKENS));
+                    boolean last = start + chunkLength >= content.length();
+                    // Usage comes with the final chunk, as with hosted models
+                    sink.next(last ? response(chunk, text.length() / CHARS_PER_TOKEN, content.length() / CHARS_PER_TOKEN)
+                            : new ChatResponse(List.of(new Generation(new AssistantMessage(chunk)))));
+                }
+                sink.complete();
+            } catch (RuntimeException e) {
+                sink.error(e);
+            }
+        }).subscribeOn(generationScheduler);
+    }
+
+    private String answer(String text) {
+        Matcher moodMatcher = MOOD.matcher(text);
+        String mood = moodMatcher.find() ? moodMatcher.group(1).trim().toLowerCase(Locale.ROOT) : "";
+        Matcher motivationsMatcher = MOTIVATIONS.matcher(text);
+        int motivations = motivationsMatcher.find() ? Integer.parseInt(motivationsMatcher.group(1)) : 0;
+
+        List<RankedDoc> ranking = new ArrayList<>();
+        Matcher docMatcher = SONG_LINE.matcher(text);
+        while (docMatcher.find()) {
+            int index = Integer.parseInt(docMatcher.group(1));
+            ranking.add(new RankedDoc(index, score(mood, docMatcher.group(2))));
+        }
+        ranking.sort(Comparator.comparingDouble(RankedDoc::score).reversed());
+
+        StringBuilder json = new StringBuilder("[");
+        for (int rank = 0; rank < ranking.size(); rank++) {
+            RankedDoc doc = ranking.get(rank);
+            if (rank > 0) {
+                json.append(',');
+            }
+            json.append(String.format(Locale.ROOT, "{\"i\":%d,\"s\":%.2f", doc.index(), doc.score()));
+            if (rank < motivations) {
+                json.append(",\"m\":\"Matches the ").append(mood).append(" mood\"");
+            }
+            json.append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static ChatResponse response(String content, int promptTokens, int completionTokens) {
+        ChatResponseMetadata metadata = ChatResponseMetadata.builder()
+                .model("fake-rerank")
+                .usage(new DefaultUsage(promptTokens, completionTokens))
+                .build();
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(content))), metadata);
+    }
+
+    private static double score(String mood, String docLine) {
+        int hash = (mood + '\n' + docLine.trim()).hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return (hash >>> 1) / (double) Integer.MAX_VALUE;
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Simulated chat call interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.online.lyrics.loadtest;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Deterministic stand-in for a remote embedding model.
+ * <p>
+ * Texts are embedded by feature hashing their words into {@code dimensions} signed buckets, so equal texts
+ * always get equal vectors and texts sharing words are similar; a mood query therefore finds the songs
+ * whose lyrics use it. Every {@link #call} waits one {@link SimulatedLatency} sample, however many texts
+ * the request batches, like a hosted embedding API.
+ */
+public class FakeEmbeddingModel implements EmbeddingModel {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final int dimensions;
+    private final SimulatedLatency latency;
+
+    public FakeEmbeddingModel(int dimensions, SimulatedLatency latency) {
+        this.dimensions = dimensions;
+        this.latency = latency;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        latency.await();
+
+        List<String> texts = request.getInstructions();
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            embeddings.add(new Embedding(vectorize(texts.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    float[] vectorize(String text) {
+        float[] vector = new float[dimensions];
+        if (text != null) {
+            for (String word : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+                if (word.isEmpty()) {
+                    continue;
+                }
+                int hash = mix(word.hashCode());
+                vector[Math.floorMod(hash, dimensions)] += (hash & 0x40000000) == 0 ? 1 : -1;
+            }
+        }
+
+        double norm = 0;
+        for (float component : vector) {
+            norm += component * component;
+        }
+        if (norm == 0) {
+            // Blank texts get a fixed unit vector so cosine similarity stays defined
+            vector[0] = 1;
+            return vector;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    // Murmur3 finalizer: String.hashCode alone clusters short words into few buckets
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
@@ -0,0 +1,283 @@
+package com.online.lyrics.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load driver for the recommendation and bulk-ingestion endpoints.
+ * <p>
+ * {@code concurrency} virtual threads send requests back to back for {@code duration}, after a
+ * {@code warmup} whose requests are not recorded, then the driver prints throughput, latency percentiles
+ * and the distribution of rerank statuses. Run it against {@link TestLyricsApplication}, from the project
+ * directory so ingestion files resolve:
+ * <pre>
+ * ./gradlew loadTest -PloadTestArgs="--scenario=recommend --concurrency=32 --duration=PT60S"
+ * </pre>
+ * Scenarios: {@code recommend} (single mood), {@code batch} ({@code batch-size} moods per request) and
+ * {@code ingest} ({@code rows} synthetic songs per request, written to a fresh CSV file each time so no
+ * row is skipped as unchanged). {@code unique-ratio} is the share of moods made unique with a random
+ * word, which bypasses the query embedding and rerank caches.
+ */
+public class LoadDriver {
+
+    private static final String RECOMMENDATIONS_PATH = "/api/songs/v1/recommendations";
+    private static final String BULK_PATH = "/api/songs/v1/embeddings/bulk";
+    private static final String RESOURCES_PATH = "src/main/resources";
+    private static final String RERANK_STATUS_HEADER = "X-Rerank-Status";
+    private static final String[] LYRIC_WORDS = {
+            "love", "heart", "night", "dance", "tears", "sun", "rain", "fire", "alone", "party", "dream",
+            "summer", "broken", "happy", "sad", "angry", "calm", "memories", "road", "home", "light", "dark",
+            "money", "friends", "forever", "goodbye", "baby", "city", "ocean", "sky", "storm", "smile"};
+    private static final List<String> DEFAULT_MOODS = List.of(
+            "happy", "sad", "angry", "calm", "romantic", "energetic", "nostalgic", "dark");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final Map<String, String> options;
+    private final URI baseUrl;
+    private final String scenario;
+    private final List<String> moods;
+    private final double uniqueRatio;
+    private final AtomicLong fileSequence = new AtomicLong();
+
+    LoadDriver(Map<String, String> options) {
+        this.options = options;
+        this.baseUrl = URI.create(option("base-url", "http://localhost:8080"));
+        this.scenario = option("scenario", "recommend");
+        this.moods = options.containsKey("moods") ? List.of(options.get("moods").split(",")) : DEFAULT_MOODS;
+        this.uniqueRatio = Double.parseDouble(option("unique-ratio", "0.0"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new LoadDriver(options).run();
+    }
+
+    /**
+     * Outcome of one request; {@code rows} counts ingested songs.
+     */
+    private record Sample(long latencyNanos, boolean success, String status, long rows) {
+    }
+
+    /**
+     * Samples recorded by one worker.
+     */
+    private static final class WorkerResult {
+        private long[] latencies = new long[1024];
+        private int size;
+        private long errors;
+        private long rows;
+        private final Map<String, Long> statuses = new TreeMap<>();
+
+        void record(Sample sample) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = sample.latencyNanos();
+            if (!sample.success()) {
+                errors++;
+            }
+            rows += sample.rows();
+            statuses.merge(sample.status(), 1L, Long::sum);
+        }
+
+        void merge(WorkerResult other) {
+            if (size + other.size > latencies.length) {
+                latencies = Arrays.copyOf(latencies, size + other.size);
+            }
+            System.arraycopy(other.latencies, 0, latencies, size, other.size);
+            size += other.size;
+            errors += other.errors;
+            rows += other.rows;
+            other.statuses.forEach((status, count) -> statuses.merge(status, count, Long::sum));
+        }
+    }
+
+    void run() throws Exception {
+        int concurrency = Integer.parseInt(option("concurrency", "16"));
+        Duration warmup = Duration.parse(option("warmup", "PT5S"));
+        Duration duration = Duration.parse(option("duration", "PT30S"));
+        long seed = Long.parseLong(option("seed", "42"));
+
+        System.out.printf("Driving '%s' at %s with %d workers (%s warmup, %s measured)%n",
+                scenario, baseUrl, concurrency, warmup, duration);
+
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long deadline = measureFrom + duration.toNanos();
+
+        List<Future<WorkerResult>> futures = new ArrayList<>(concurrency);
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                SplittableRandom random = new SplittableRandom(seed + i);
+                futures.add(workers.submit(() -> work(random, measureFrom, deadline)));
+            }
+        }
+
+        WorkerResult total = new WorkerResult();
+        for (Future<WorkerResult> future : futures) {
+            total.merge(future.get());
+        }
+        report(total, duration);
+    }
+
+    private WorkerResult work(SplittableRandom random, long measureFrom, long deadline) {
+        WorkerResult result = new WorkerResult();
+        while (System.nanoTime() < deadline) {
+            long start = System.nanoTime();
+            Sample sample = send(random, start);
+            if (start >= measureFrom) {
+                result.record(sample);
+            }
+        }
+        return result;
+    }
+
+    private Sample send(SplittableRandom random, long start) {
+        try {
+            HttpRequest request = switch (scenario) {
+                case "recommend" -> post(RECOMMENDATIONS_PATH, Map.of("mood", nextMood(random),
+                        "limit", Integer.parseInt(option("limit", "10"))));
+                case "batch" -> post(RECOMMENDATIONS_PATH + "/batch", batch(random));
+                case "ingest" -> post(BULK_PATH, Map.of("fileName", writeSyntheticFile(random)));
+                default -> throw new IllegalArgumentException("Unknown scenario: " + scenario);
+            };
+
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            long latency = System.nanoTime() - start;
+            boolean success = response.statusCode() / 100 == 2;
+            String status = success
+                    ? response.headers().firstValue(RERANK_STATUS_HEADER).orElse("ok")
+                    : "http-" + response.statusCode();
+            long rows = success && scenario.equals("ingest") ? ingestedRows(response.body()) : 0;
+            return new Sample(latency, success, status, rows);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Sample(System.nanoTime() - start, false, "interrupted", 0);
+        } catch (IOException e) {
+            return new Sample(System.nanoTime() - start, false, e.getClass().getSimpleName(), 0);
+        }
+    }
+
+    private HttpRequest post(String path, Object body) throws IOException {
+        return HttpRequest.newBuilder(baseUrl.resolve(path))
+                .timeout(Duration.ofMinutes(5))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private List<Map<String, Object>> batch(SplittableRandom random) {
+        int batchSize = Integer.parseInt(option("batch-size", "8"));
+        int limit = Integer.parseInt(option("limit", "10"));
+        List<Map<String, Object>> requests = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            requests.add(Map.of("mood", nextMood(random), "limit", limit));
+        }
+        return requests;
+    }
+
+    private String nextMood(SplittableRandom random) {
+        String mood = moods.get(random.nextInt(moods.size()));
+        if (random.nextDouble() < uniqueRatio) {
+            mood += " " + LYRIC_WORDS[random.nextInt(LYRIC_WORDS.length)] + " " + random.nextInt(1_000_000);
+        }
+        return mood;
+    }
+
+    /**
+     * Writes a CSV of {@code rows} random songs and returns its name relative to the resources folder, where
+     * the ingestion endpoint resolves file names.
+     */
+    private String writeSyntheticFile(SplittableRandom random) throws IOException {
+        int rows = Integer.parseInt(option("rows", "200"));
+        long fileNumber = fileSequence.incrementAndGet();
+        Path file = Path.of("build", "loadtest", "ingest-" + ProcessHandle.current().pid() + "-" + fileNumber + ".csv");
+        Files.createDirectories(file.getParent());
+
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            writer.write("id,Artist,Title,Album,Year,Date,Lyric\n");
+            for (int row = 0; row < rows; row++) {
+                StringBuilder lyrics = new StringBuilder();
+                for (int word = 0; word < 120; word++) {
+                    lyrics.append(LYRIC_WORDS[random.nextInt(LYRIC_WORDS.length)]).append(' ');
+                }
+                // Unique per file, so a re-run never finds the song unchanged
+                lyrics.append("take").append(random.nextLong() & Long.MAX_VALUE);
+                int year = 1960 + random.nextInt(65);
+                writer.write(String.format(Locale.ROOT, "%d,Artist %d,Song %d-%d,Album %d,%d,%d-01-01,%s%n",
+                        row, random.nextInt(500), fileNumber, row, random.nextInt(2000), year, year, lyrics));
+            }
+        }
+        file.toFile().deleteOnExit();
+        return Path.of(RESOURCES_PATH).toAbsolutePath().relativize(file.toAbsolutePath()).toString();
+    }
+
+    private long ingestedRows(String body) {
+        try {
+            Object ingested = objectMapper.readValue(body, Map.class).get("numberOfSongs");
+            return ingested instanceof Number number ? number.longValue() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void report(WorkerResult total, Duration duration) {
+        long[] latencies = Arrays.copyOf(total.latencies, total.size);
+        Arrays.sort(latencies);
+        double seconds = duration.toMillis() / 1000.0;
+
+        System.out.printf(Locale.ROOT, "%nrequests=%d errors=%d (%.2f%%) throughput=%.1f req/s%n",
+                total.size, total.errors, total.size == 0 ? 0 : 100.0 * total.errors / total.size,
+                total.size / seconds);
+        if (total.rows > 0) {
+            System.out.printf(Locale.ROOT, "ingested=%d rows (%.1f rows/s)%n", total.rows, total.rows / seconds);
+        }
+        if (latencies.length > 0) {
+            System.out.printf(Locale.ROOT, "latency ms: p50=%.1f p90=%.1f p95=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                    percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 95),
+                    percentile(latencies, 99), percentile(latencies, 99.9), latencies[latencies.length - 1] / 1e6);
+        }
+        System.out.println("statuses: " + total.statuses);
+    }
+
+    // Nearest-rank percentile, in milliseconds
+    private static double percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(rank - 1, 0)] / 1e6;
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+}
@@ -0,0 +1,51 @@
+package com.online.lyrics.loadtest;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+import org.testcontainers.containers.MongoDBContainer;
+
+import java.time.Duration;
+
+/**
+ * Replaces the remote models with local stand-ins for the {@code loadtest} profile.
+ * <p>
+ * The chat and embedding models are {@link FakeChatModel} and {@link FakeEmbeddingModel}, with latency and
+ * failure rates from {@code lyrics.loadtest.*}. MongoDB runs in a throwaway container unless
+ * {@code lyrics.loadtest.mongo=local}, in which case {@code MONGO_URI} is used as usual.
+ */
+@Profile("loadtest")
+@TestConfiguration(proxyBeanMethods = false)
+public class LoadTestConfiguration {
+
+    @Bean
+    public ChatModel fakeChatModel(@Value("${lyrics.loadtest.chat.median-latency:PT0.4S}") Duration median,
+                                   @Value("${lyrics.loadtest.chat.p99-latency:PT3S}") Duration p99,
+                                   @Value("${lyrics.loadtest.chat.per-output-token-latency:PT0.01S}") Duration perOutputToken,
+                                   @Value("${lyrics.loadtest.chat.failure-rate:0.01}") double failureRate,
+                                   @Value("${lyrics.loadtest.seed:42}") long seed) {
+        return new FakeChatModel(new SimulatedLatency("chat", median, p99, failureRate, seed), perOutputToken);
+    }
+
+    @Bean
+    public EmbeddingModel fakeEmbeddingModel(@Value("${lyrics.loadtest.embedding.dimensions:384}") int dimensions,
+                                             @Value("${lyrics.loadtest.embedding.median-latency:PT0.05S}") Duration median,
+                                             @Value("${lyrics.loadtest.embedding.p99-latency:PT0.3S}") Duration p99,
+                                             @Value("${lyrics.loadtest.embedding.failure-rate:0.0}") double failureRate,
+                                             @Value("${lyrics.loadtest.seed:42}") long seed) {
+        return new FakeEmbeddingModel(dimensions,
+                new SimulatedLatency("embedding", median, p99, failureRate, seed + 1));
+    }
+
+    @Bean
+    @ServiceConnection
+    @ConditionalOnProperty(prefix = "lyrics.loadtest", name = "mongo", havingValue = "container", matchIfMissing = true)
+    public MongoDBContainer mongoDbContainer(@Value("${lyrics.loadtest.mongo-image:mongo:7.0}") String image) {
+        return new MongoDBContainer(image);
+    }
+}
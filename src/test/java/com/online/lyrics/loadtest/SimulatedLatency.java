@@ -0,0 +1,61 @@
+package com.online.lyrics.loadtest;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+/**
+ * Latency and failure distribution of a simulated remote model call.
+ * <p>
+ * Latencies follow a log-normal distribution fitted to the configured median and p99, which matches the
+ * long tail of hosted model APIs better than a fixed delay. Failures are drawn independently with
+ * {@code failureRate} and surface as a {@link RuntimeException} after the sampled latency, like a
+ * request that times out or errors on the server.
+ */
+public class SimulatedLatency {
+
+    // z-score of the 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.3263;
+
+    private final String name;
+    private final boolean instant;
+    private final double mu;
+    private final double sigma;
+    private final double failureRate;
+    private final SplittableRandom random;
+
+    public SimulatedLatency(String name, Duration median, Duration p99, double failureRate, long seed) {
+        if (p99.compareTo(median) < 0) {
+            throw new IllegalArgumentException("p99 latency of " + name + " must not be below its median");
+        }
+        this.name = name;
+        this.instant = median.isZero();
+        this.mu = instant ? 0 : Math.log(median.toNanos());
+        this.sigma = instant ? 0 : Math.log((double) p99.toNanos() / median.toNanos()) / Z_99;
+        this.failureRate = failureRate;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Blocks for a sampled latency, then fails with probability {@code failureRate}.
+     */
+    public void await() {
+        double gaussian;
+        boolean fail;
+        synchronized (random) {
+            gaussian = random.nextGaussian();
+            fail = random.nextDouble() < failureRate;
+        }
+
+        if (!instant) {
+            try {
+                Thread.sleep(Duration.ofNanos((long) Math.exp(mu + sigma * gaussian)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Simulated " + name + " call interrupted", e);
+            }
+        }
+        if (fail) {
+            throw new RuntimeException("Simulated " + name + " failure");
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.online.lyrics.loadtest;
+
+import com.online.lyrics.LyricsApplication;
+import org.springframework.boot.SpringApplication;
+
+import java.util.Arrays;
+
+/**
+ * Runs the application on the {@code loadtest} profile with the stand-ins of {@link LoadTestConfiguration}:
+ * {@code ./gradlew bootTestRun}. Drive it with {@link LoadDriver}.
+ */
+public class TestLyricsApplication {
+
+    public static void main(String[] args) {
+        String[] loadTestArgs = Arrays.copyOf(args, args.length + 1);
+        loadTestArgs[args.length] = "--spring.profiles.include=loadtest";
+        SpringApplication.from(LyricsApplication::main)
+                .with(LoadTestConfiguration.class)
+                .run(loadTestArgs);
+    }
+}
@@ -0,0 +1,73 @@
+package com.online.lyrics.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Bm25IndexTest {
+
+    @Test
+    void searchRanksRarerAndMoreFrequentTermsHigher() {
+        Bm25Index index = new Bm25Index(3);
+        index.add("1", "Rain", "Someone", "rain rain falling on the city");
+        index.add("2", "Sun", "Someone", "the sun is out and the city is warm");
+        index.add("3", "Night", "Someone", "a rain of stars over the city");
+
+        List<Bm25Index.Match> matches = index.search("rain city", 10);
+
+        assertThat(matches).extracting(Bm25Index.Match::id).containsExactly("1", "3", "2");
+    }
+
+    @Test
+    void titleAndArtistTermsAreBoosted() {
+        Bm25Index index = new Bm25Index(3);
+        index.add("lyrics", "Something", "Someone", "heartbreak and more heartbreak tonight");
+        index.add("title", "Heartbreak", "Someone", "tonight we dance until the lights go out");
+
+        assertThat(index.search("heartbreak", 1)).extracting(Bm25Index.Match::id).containsExactly("title");
+    }
+
+    @Test
+    void removedAndReplacedDocumentsAreNotReturned() {
+        Bm25Index index = new Bm25Index(3);
+        index.add("1", "Ocean", "A", "waves on the ocean");
+        index.add("2", "River", "B", "the river meets the ocean");
+        index.add("3", "Desert", "C", "sand and sun");
+
+        index.remove("2");
+        index.add("3", "Ocean", "C", "another ocean song");
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.search("ocean", 10)).extracting(Bm25Index.Match::id).containsExactlyInAnyOrder("1", "3");
+        assertThat(index.search("sand", 10)).isEmpty();
+    }
+
+    @Test
+    void searchReturnsAtMostK() {
+        Bm25Index index = new Bm25Index(1);
+        for (int i = 0; i < 50; i++) {
+            index.add(Integer.toString(i), "Love " + i, "Artist", "love song number " + i);
+        }
+
+        assertThat(index.search("love", 5)).hasSize(5);
+        assertThat(index.search("unknown words", 5)).isEmpty();
+    }
+
+    @Test
+    void reAddingDocumentsCompactsTheIndex() {
+        Bm25Index index = new Bm25Index(1);
+        for (int round = 0; round < 30; round++) {
+            for (int i = 0; i < 100; i++) {
+                index.add(Integer.toString(i), "Title " + i, "Artist", "round" + round + " lyrics number" + i);
+            }
+        }
+
+        assertThat(index.size()).isEqualTo(100);
+        assertThat(index.documentCount()).isLessThan(100 + 1024 + 100);
+        assertThat(index.search("round29", 200)).hasSize(100);
+        assertThat(index.search("round3", 10)).isEmpty();
+        assertThat(index.search("number7", 10)).extracting(Bm25Index.Match::id).containsExactly("7");
+    }
+}
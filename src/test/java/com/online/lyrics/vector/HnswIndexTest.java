@@ -0,0 +1,183 @@
+package com.online.lyrics.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 32;
+    private static final int SIZE = 2000;
+
+    @Test
+    void searchFindsMostOfTheExactNearestNeighbours() {
+        Random random = new Random(7);
+        float[][] vectors = randomVectors(random, SIZE);
+        HnswIndex index = index(vectors);
+
+        int k = 10;
+        int found = 0;
+        for (int q = 0; q < 50; q++) {
+            float[] query = randomVector(random);
+            Set<String> exact = new HashSet<>(exactTopK(vectors, query, k, id -> true));
+            found += (int) index.search(query, k, null).stream().filter(match -> exact.contains(match.id())).count();
+        }
+        assertThat(found / (50.0 * k)).isGreaterThan(0.9);
+    }
+
+    @Test
+    void quantizedIndexKeepsHighRecall() {
+        Random random = new Random(9);
+        float[][] vectors = randomVectors(random, SIZE);
+        HnswIndex index = new HnswIndex(16, 100, 50, QuantizedVector.Encoding.INT8);
+        for (int i = 0; i < vectors.length; i++) {
+            index.add(id(i), vectors[i]);
+        }
+
+        int k = 10;
+        int found = 0;
+        for (int q = 0; q < 50; q++) {
+            float[] query = randomVector(random);
+            Set<String> exact = new HashSet<>(exactTopK(vectors, query, k, id -> true));
+            found += (int) index.search(query, k, null).stream().filter(match -> exact.contains(match.id())).count();
+        }
+        assertThat(found / (50.0 * k)).isGreaterThan(0.85);
+        assertThat(index.vector(id(0))).hasSize(DIMENSIONS);
+    }
+
+    @Test
+    void searchSkipsRemovedVectorsAndStillReturnsK() {
+        Random random = new Random(11);
+        float[][] vectors = randomVectors(random, SIZE);
+        HnswIndex index = index(vectors);
+        // Tombstone 95% of the graph
+        for (int i = 0; i < SIZE; i++) {
+            if (i % 20 != 0) {
+                assertThat(index.remove(id(i))).isTrue();
+            }
+        }
+
+        List<HnswIndex.Match> matches = index.search(randomVector(random), 10, null);
+
+        assertThat(index.size()).isEqualTo(SIZE / 20);
+        assertThat(matches).hasSize(10);
+        assertThat(matches).allSatisfy(match -> assertThat(Integer.parseInt(match.id()) % 20).isZero());
+    }
+
+    @Test
+    void searchReturnsOnlyFilteredIds() {
+        Random random = new Random(13);
+        float[][] vectors = randomVectors(random, SIZE);
+        HnswIndex index = index(vectors);
+        float[] query = randomVector(random);
+
+        List<HnswIndex.Match> matches = index.search(query, 5, id -> Integer.parseInt(id) % 100 == 0);
+
+        assertThat(matches).extracting(HnswIndex.Match::id)
+                .containsExactlyElementsOf(exactTopK(vectors, query, 5, i -> i % 100 == 0));
+    }
+
+    @Test
+    void searchWithAFilterRejectingAlmostEverythingReturnsAllMatches() {
+        Random random = new Random(19);
+        float[][] vectors = randomVectors(random, SIZE);
+        HnswIndex index = index(vectors);
+        float[] query = randomVector(random);
+
+        // 4 matching nodes: the widened beam cannot fill k, so the search falls back to a scan
+        List<HnswIndex.Match> matches = index.search(query, 10, id -> Integer.parseInt(id) % 500 == 7);
+
+        assertThat(matches).extracting(HnswIndex.Match::id)
+                .containsExactlyElementsOf(exactTopK(vectors, query, 10, i -> i % 500 == 7));
+    }
+
+    @Test
+    void searchOrdersMatchesBySimilarity() {
+        Random random = new Random(17);
+        HnswIndex index = index(randomVectors(random, 200));
+
+        List<HnswIndex.Match> matches = index.search(randomVector(random), 20, null);
+
+        assertThat(matches).isSortedAccordingTo(Comparator.comparingDouble(HnswIndex.Match::similarity).reversed());
+    }
+
+    @Test
+    void addReplacesAnExistingId() {
+        HnswIndex index = new HnswIndex(8, 50, 20);
+        index.add("a", new float[]{1, 0});
+        index.add("b", new float[]{0, 1});
+        index.add("a", new float[]{0, 2});
+
+        List<HnswIndex.Match> matches = index.search(new float[]{0, 1}, 2, null);
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(matches).extracting(HnswIndex.Match::similarity).containsOnly(1.0f);
+    }
+
+    @Test
+    void replacingVectorsCompactsTheGraph() {
+        Random random = new Random(23);
+        float[][] vectors = randomVectors(random, SIZE);
+        HnswIndex index = index(vectors);
+        // Re-ingest every vector three times; each replacement leaves a tombstone behind
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < SIZE; i++) {
+                index.add(id(i), vectors[i]);
+            }
+        }
+        float[] query = randomVector(random);
+
+        assertThat(index.size()).isEqualTo(SIZE);
+        assertThat(index.nodeCount()).isLessThanOrEqualTo(SIZE + SIZE / 2);
+        assertThat(index.search(query, 10, null)).extracting(HnswIndex.Match::id)
+                .containsAnyElementsOf(exactTopK(vectors, query, 10, i -> true));
+    }
+
+    private static HnswIndex index(float[][] vectors) {
+        HnswIndex index = new HnswIndex(16, 100, 50);
+        for (int i = 0; i < vectors.length; i++) {
+            index.add(id(i), vectors[i]);
+        }
+        return index;
+    }
+
+    private static List<String> exactTopK(float[][] vectors, float[] query, int k,
+                                          java.util.function.IntPredicate accept) {
+        float[] normalized = HnswIndex.normalize(query);
+        return IntStream.range(0, vectors.length)
+                .filter(accept)
+                .boxed()
+                .sorted(Comparator.comparingDouble(
+                        (Integer i) -> HnswIndex.dot(HnswIndex.normalize(vectors[i]), normalized)).reversed())
+                .limit(k)
+                .map(HnswIndexTest::id)
+                .toList();
+    }
+
+    private static String id(int i) {
+        return Integer.toString(i);
+    }
+
+    private static float[][] randomVectors(Random random, int count) {
+        float[][] vectors = new float[count][];
+        for (int i = 0; i < count; i++) {
+            vectors[i] = randomVector(random);
+        }
+        return vectors;
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector[d] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
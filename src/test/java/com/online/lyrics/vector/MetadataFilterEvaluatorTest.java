@@ -0,0 +1,43 @@
+package com.online.lyrics.vector;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetadataFilterEvaluatorTest {
+
+    private final FilterExpressionBuilder b = new FilterExpressionBuilder();
+
+    @Test
+    void rangeComparisonsNeverMatchAMissingValue() {
+        Map<String, Object> withoutYear = Map.of("genre", "Pop");
+
+        for (Filter.Expression expression : new Filter.Expression[]{
+                b.lt("releaseYear", 2000).build(), b.lte("releaseYear", 2000).build(),
+                b.gt("releaseYear", 2000).build(), b.gte("releaseYear", 2000).build()}) {
+            assertThat(MetadataFilterEvaluator.matches(expression, withoutYear)).as(expression.toString()).isFalse();
+        }
+    }
+
+    @Test
+    void numbersCompareAcrossTypes() {
+        Filter.Expression nineties = b.and(b.gte("releaseYear", 1990), b.lte("releaseYear", 1999)).build();
+
+        assertThat(MetadataFilterEvaluator.matches(nineties, Map.of("releaseYear", 1995L))).isTrue();
+        assertThat(MetadataFilterEvaluator.matches(nineties, Map.of("releaseYear", 1999.0))).isTrue();
+        assertThat(MetadataFilterEvaluator.matches(nineties, Map.of("releaseYear", 2001))).isFalse();
+    }
+
+    @Test
+    void logicalOperatorsCombineConditions() {
+        Filter.Expression expression = b.or(b.eq("genre", "Rock"), b.not(b.in("artist", "A", "B"))).build();
+
+        assertThat(MetadataFilterEvaluator.matches(expression, Map.of("genre", "Rock", "artist", "A"))).isTrue();
+        assertThat(MetadataFilterEvaluator.matches(expression, Map.of("genre", "Pop", "artist", "C"))).isTrue();
+        assertThat(MetadataFilterEvaluator.matches(expression, Map.of("genre", "Pop", "artist", "B"))).isFalse();
+    }
+}
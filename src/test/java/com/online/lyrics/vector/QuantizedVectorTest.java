@@ -0,0 +1,52 @@
+package com.online.lyrics.vector;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class QuantizedVectorTest {
+
+    private static final float[] VECTOR = {0.3f, -1.2f, 0.7f, 2.1f, -0.4f, 0.05f, 1.5f, -0.9f, 0.2f};
+
+    @Test
+    void equalEncodingsAreEqualValues() {
+        for (QuantizedVector.Encoding encoding : QuantizedVector.Encoding.values()) {
+            QuantizedVector a = QuantizedVector.encode(VECTOR, encoding);
+            QuantizedVector b = QuantizedVector.encode(VECTOR.clone(), encoding);
+
+            assertThat(a).as(encoding.name()).isEqualTo(b).hasSameHashCodeAs(b);
+        }
+        assertThat(QuantizedVector.encode(VECTOR, QuantizedVector.Encoding.INT8))
+                .isNotEqualTo(QuantizedVector.encode(new float[VECTOR.length], QuantizedVector.Encoding.INT8));
+    }
+
+    @Test
+    void int8SimilarityIsCloseToTheExactOne() {
+        float[] query = HnswIndex.normalize(new float[]{1, 0, 0, 1, 0, 0, 1, 0, 0});
+        float exact = HnswIndex.dot(query, HnswIndex.normalize(VECTOR));
+
+        QuantizedVector int8 = QuantizedVector.encode(VECTOR, QuantizedVector.Encoding.INT8);
+
+        assertThat(int8.similarity(query)).isCloseTo(exact, within(0.02f));
+        assertThat(int8.decode()).hasSize(VECTOR.length);
+    }
+
+    @Test
+    void binaryVectorsKeepOneBitPerComponent() {
+        QuantizedVector binary = QuantizedVector.encode(VECTOR, QuantizedVector.Encoding.BINARY);
+
+        assertThat(binary.sizeInBytes()).isEqualTo(2);
+        assertThat(binary.similarity(binary)).isEqualTo(1.0f);
+        assertThat(binary.hammingDistance(QuantizedVector.encode(negated(VECTOR), QuantizedVector.Encoding.BINARY)))
+                .isEqualTo(VECTOR.length);
+    }
+
+    private static float[] negated(float[] vector) {
+        float[] negated = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            negated[i] = -vector[i];
+        }
+        return negated;
+    }
+}
@@ -0,0 +1,149 @@
+package com.online.lyrics.vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class VectorSegmentTest {
+
+    private static final int DIMENSIONS = 24;
+    private static final int SIZE = 1000;
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @EnumSource(value = QuantizedVector.Encoding.class, names = {"FLOAT32", "INT8"})
+    void searchFindsTheNearestNeighbours(QuantizedVector.Encoding encoding) throws IOException {
+        Random random = new Random(3);
+        float[][] vectors = randomVectors(random);
+        VectorSegment segment = write(encoding, vectors);
+
+        int k = 10;
+        int found = 0;
+        for (int q = 0; q < 30; q++) {
+            float[] query = randomVector(random);
+            Set<Integer> exact = new HashSet<>(exactTopK(vectors, query, k));
+            found += (int) segment.search(query, k, 4, entry -> true).stream()
+                    .filter(hit -> exact.contains(hit.entry()))
+                    .count();
+        }
+        // Float segments are exact; int8 candidates are rescored with the float vectors
+        assertThat(found / (30.0 * k)).isGreaterThanOrEqualTo(encoding == QuantizedVector.Encoding.FLOAT32 ? 1.0 : 0.95);
+    }
+
+    @Test
+    void binarySegmentsRescoreSignBitCandidates() throws IOException {
+        Random random = new Random(7);
+        float[][] vectors = randomVectors(random);
+        VectorSegment segment = write(QuantizedVector.Encoding.BINARY, vectors);
+
+        int k = 10;
+        int found = 0;
+        for (int q = 0; q < 30; q++) {
+            float[] query = randomVector(random);
+            float[] normalized = HnswIndex.normalize(query);
+            Set<Integer> exact = new HashSet<>(exactTopK(vectors, query, k));
+            List<VectorSegment.Hit> hits = segment.search(query, k, 20, entry -> true);
+
+            // Sign bits only pre-select; the returned similarities are the exact ones
+            assertThat(hits).allSatisfy(hit -> assertThat(hit.similarity()).isCloseTo(
+                    HnswIndex.dot(HnswIndex.normalize(vectors[hit.entry()]), normalized), within(1e-5f)));
+            found += (int) hits.stream().filter(hit -> exact.contains(hit.entry())).count();
+        }
+        assertThat(found / (30.0 * k)).isGreaterThanOrEqualTo(0.75);
+    }
+
+    @Test
+    void searchSkipsRejectedEntries() throws IOException {
+        Random random = new Random(5);
+        VectorSegment segment = write(QuantizedVector.Encoding.INT8, randomVectors(random));
+
+        List<VectorSegment.Hit> hits = segment.search(randomVector(random), 10, 4, entry -> entry % 7 == 0);
+
+        assertThat(hits).hasSize(10);
+        assertThat(hits).allSatisfy(hit -> assertThat(hit.entry() % 7).isZero());
+        assertThat(hits).isSortedAccordingTo(Comparator.comparingDouble(VectorSegment.Hit::similarity).reversed());
+    }
+
+    @Test
+    void entriesKeepTheirIdsAndMetadata() throws IOException {
+        Path path = directory.resolve("ids.seg");
+        Instant beforeWrite = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        try (VectorSegmentWriter writer = new VectorSegmentWriter(path, QuantizedVector.Encoding.FLOAT32)) {
+            writer.append("first", new float[]{1, 0}, Map.of("genre", "Pop"));
+            writer.append("second", new float[]{0, 1}, Map.of());
+            writer.finish();
+        }
+
+        VectorSegment segment = VectorSegment.open(path);
+
+        assertThat(segment.count()).isEqualTo(2);
+        assertThat(segment.id(0)).isEqualTo("first");
+        assertThat(segment.metadataJson(0)).contains("\"genre\"").contains("\"Pop\"");
+        assertThat(segment.id(1)).isEqualTo("second");
+        assertThat(segment.writtenAt()).isBetween(beforeWrite, Instant.now());
+    }
+
+    @Test
+    void searchRejectsQueriesOfAnotherDimension() throws IOException {
+        VectorSegment segment = write(QuantizedVector.Encoding.FLOAT32, randomVectors(new Random(1)));
+
+        assertThatThrownBy(() -> segment.search(new float[DIMENSIONS + 1], 5, 1, entry -> true))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private VectorSegment write(QuantizedVector.Encoding encoding, float[][] vectors) throws IOException {
+        Path path = directory.resolve(encoding + ".seg");
+        try (VectorSegmentWriter writer = new VectorSegmentWriter(path, encoding)) {
+            for (int i = 0; i < vectors.length; i++) {
+                writer.append(Integer.toString(i), vectors[i], Map.of());
+            }
+            writer.finish();
+        }
+        return VectorSegment.open(path);
+    }
+
+    private static List<Integer> exactTopK(float[][] vectors, float[] query, int k) {
+        float[] normalized = HnswIndex.normalize(query);
+        return IntStream.range(0, vectors.length)
+                .boxed()
+                .sorted(Comparator.comparingDouble(
+                        (Integer i) -> HnswIndex.dot(HnswIndex.normalize(vectors[i]), normalized)).reversed())
+                .limit(k)
+                .toList();
+    }
+
+    private static float[][] randomVectors(Random random) {
+        float[][] vectors = new float[SIZE][];
+        for (int i = 0; i < SIZE; i++) {
+            vectors[i] = randomVector(random);
+        }
+        return vectors;
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector[d] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}